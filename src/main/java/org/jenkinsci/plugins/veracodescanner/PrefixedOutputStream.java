@@ -0,0 +1,35 @@
+package org.jenkinsci.plugins.veracodescanner;
+
+import hudson.console.LineTransformationOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Prefixes every line written to the build log so that concurrent submissions to several applications can be told
+ * apart. The prefix is encoded in the charset of the log it is written to.
+ */
+public class PrefixedOutputStream extends LineTransformationOutputStream {
+
+	private final OutputStream out;
+	private final byte[] prefix;
+
+	public PrefixedOutputStream(OutputStream out, String prefix, Charset charset) {
+		this.out = out;
+		this.prefix = prefix.getBytes(charset);
+	}
+
+	@Override
+	protected void eol(byte[] b, int len) throws IOException {
+		synchronized (out) {
+			out.write(prefix);
+			out.write(b, 0, len);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+}
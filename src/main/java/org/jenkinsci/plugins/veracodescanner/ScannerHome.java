@@ -0,0 +1,27 @@
+package org.jenkinsci.plugins.veracodescanner;
+
+import hudson.XmlFile;
+import hudson.util.XStream2;
+
+import java.io.File;
+
+import jenkins.model.Jenkins;
+
+/**
+ * Directory the scanner keeps its state in: <code>JENKINS_HOME/veracode-scanner</code>.
+ */
+public final class ScannerHome {
+
+	private static final XStream2 XSTREAM = new XStream2();
+
+	private ScannerHome() {
+	}
+
+	public static File getRootDir() {
+		return new File(Jenkins.getInstance().getRootDir(), "veracode-scanner");
+	}
+
+	public static XmlFile getFile(String name) {
+		return new XmlFile(XSTREAM, new File(getRootDir(), name));
+	}
+}
@@ -0,0 +1,51 @@
+package org.jenkinsci.plugins.veracodescanner;
+
+import hudson.EnvVars;
+import hudson.model.AbstractBuild;
+import hudson.model.EnvironmentContributingAction;
+
+/**
+ * Remembers which Veracode build a Jenkins build submitted or was gated on, and exposes it to later build steps and
+ * parameterized downstream builds as <code>VERACODE_APP_ID</code> and <code>VERACODE_BUILD_ID</code>.
+ */
+public class VeracodeBuildAction implements EnvironmentContributingAction {
+
+	private final String appName;
+	private final String appId;
+	private final long buildId;
+
+	public VeracodeBuildAction(String appName, String appId, long buildId) {
+		this.appName = appName;
+		this.appId = appId;
+		this.buildId = buildId;
+	}
+
+	public String getAppName() {
+		return appName;
+	}
+
+	public String getAppId() {
+		return appId;
+	}
+
+	public long getBuildId() {
+		return buildId;
+	}
+
+	public void buildEnvVars(AbstractBuild<?, ?> build, EnvVars env) {
+		env.put("VERACODE_APP_ID", appId);
+		env.put("VERACODE_BUILD_ID", Long.toString(buildId));
+	}
+
+	public String getIconFileName() {
+		return null;
+	}
+
+	public String getDisplayName() {
+		return null;
+	}
+
+	public String getUrlName() {
+		return null;
+	}
+}
@@ -0,0 +1,99 @@
+package org.jenkinsci.plugins.veracodescanner;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.matrix.MatrixAggregator;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixRun;
+import hudson.model.BuildListener;
+import hudson.model.Result;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jenkinsci.plugins.veracodescanner.fingerprint.Fingerprinter;
+import org.jenkinsci.plugins.veracodescanner.fingerprint.Fingerprints;
+import org.jenkinsci.plugins.veracodescanner.model.ApplicationTarget;
+import org.jenkinsci.plugins.veracodescanner.staging.StagedFile;
+import org.jenkinsci.plugins.veracodescanner.staging.StagingArea;
+
+/**
+ * Collects the artifacts of all configurations of a matrix build so that they are submitted to Veracode once from the
+ * parent build. Artifacts with identical content are only uploaded once per application. Artifacts are staged on the
+ * controller as each configuration finishes, as its workspace may be gone by the time the parent build ends.
+ */
+public class VeracodeMatrixAggregator extends MatrixAggregator {
+
+	private final VeracodeNotifier notifier;
+	private final List<ApplicationTarget> targets;
+	private final List<Map<String, FilePath>> collected = new ArrayList<Map<String, FilePath>>();
+	private final List<Map<String, String>> digestsByName = new ArrayList<Map<String, String>>();
+	private final List<StagedFile> staged = new ArrayList<StagedFile>();
+
+	public VeracodeMatrixAggregator(VeracodeNotifier notifier, MatrixBuild build, Launcher launcher, BuildListener listener) {
+		super(build, launcher, listener);
+		this.notifier = notifier;
+		this.targets = notifier.getTargets();
+		for (int i = 0; i < targets.size(); i++) {
+			collected.add(new LinkedHashMap<String, FilePath>());
+			digestsByName.add(new HashMap<String, String>());
+		}
+	}
+
+	@Override
+	public boolean endRun(MatrixRun run) throws InterruptedException, IOException {
+		Result result = run.getResult();
+		if (result != null && result.isWorseThan(Result.UNSTABLE)) {
+			listener.getLogger().println("Not submitting artifacts of " + run.getFullDisplayName() + " to Veracode as it did not succeed.");
+			return true;
+		}
+		FilePath workspace = run.getWorkspace();
+		if (workspace == null) {
+			return true;
+		}
+
+		int added = 0;
+		for (int i = 0; i < targets.size(); i++) {
+			Fingerprints fingerprints = Fingerprinter.fingerprint(workspace, targets.get(i).getIncludes());
+			listener.getLogger().println(fingerprints.getThroughput());
+			for (Map.Entry<String, String> entry : fingerprints.getDigests().entrySet()) {
+				String digest = entry.getValue();
+				if (collected.get(i).containsKey(digest)) {
+					continue;
+				}
+				StagedFile file = StagingArea.get().stage(new FilePath(workspace.getChannel(), entry.getKey()), digest);
+				staged.add(file);
+				String previous = digestsByName.get(i).put(file.getName(), digest);
+				if (previous != null) {
+					listener.getLogger().println("[WARNING] " + run.getFullDisplayName() + " produced a different " + file.getName()
+							+ " than another configuration, Veracode keeps only the last uploaded file of a name.");
+				}
+				collected.get(i).put(digest, new FilePath(StagingArea.get().getFile(file)));
+				added++;
+			}
+		}
+		listener.getLogger().println("Collected " + added + " artifact(s) of " + run.getFullDisplayName() + " for the Veracode scan.");
+		return true;
+	}
+
+	@Override
+	public boolean endBuild() throws InterruptedException, IOException {
+		try {
+			for (Map<String, FilePath> artifacts : collected) {
+				if (!artifacts.isEmpty()) {
+					return notifier.submit(build, listener, collected);
+				}
+			}
+			listener.getLogger().println("No configuration produced artifacts to submit to Veracode.");
+			return true;
+		} finally {
+			for (StagedFile file : staged) {
+				StagingArea.get().release(file);
+			}
+		}
+	}
+}
@@ -13,16 +13,24 @@ package org.jenkinsci.plugins.veracodescanner;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.matrix.MatrixAggregatable;
+import hudson.matrix.MatrixAggregator;
+import hudson.matrix.MatrixBuild;
+import hudson.matrix.MatrixRun;
 import hudson.model.BuildListener;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
+import hudson.model.AutoCompletionCandidates;
 import hudson.model.Cause;
+import hudson.model.Item;
 import hudson.model.Result;
-import hudson.remoting.VirtualChannel;
+import hudson.model.StreamBuildListener;
+import hudson.model.TaskListener;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Notifier;
 import hudson.tasks.Publisher;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.FormValidation;
 import hudson.EnvVars;
 
@@ -32,31 +40,72 @@ import java.io.PrintWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 
+import jenkins.model.Jenkins;
+
 import net.sf.json.JSONObject;
 
+import org.jenkinsci.plugins.veracodescanner.applist.AppListCache;
+import org.jenkinsci.plugins.veracodescanner.applist.AppNameIndex;
+import org.jenkinsci.plugins.veracodescanner.credentials.ApiCredential;
+import org.jenkinsci.plugins.veracodescanner.credentials.CredentialPool;
+import org.jenkinsci.plugins.veracodescanner.estimate.CompletionEstimator;
 import org.jenkinsci.plugins.veracodescanner.exception.VeracodeScannerException;
-import org.jenkinsci.plugins.veracodescanner.model.AppType;
+import org.jenkinsci.plugins.veracodescanner.fingerprint.Fingerprinter;
+import org.jenkinsci.plugins.veracodescanner.fingerprint.Fingerprints;
+import org.jenkinsci.plugins.veracodescanner.gate.PolicyGate;
+import org.jenkinsci.plugins.veracodescanner.gate.ResultPoller;
+import org.jenkinsci.plugins.veracodescanner.gate.VeracodeResultsTrigger;
+import org.jenkinsci.plugins.veracodescanner.model.ApplicationTarget;
 import org.jenkinsci.plugins.veracodescanner.model.Applist;
 import org.jenkinsci.plugins.veracodescanner.model.BuildTriggers;
 import org.jenkinsci.plugins.veracodescanner.model.buildinfo.AnalysisUnitType;
 import org.jenkinsci.plugins.veracodescanner.model.buildinfo.Buildinfo;
-import org.jenkinsci.plugins.veracodescanner.model.prescan.ModuleType;
-import org.jenkinsci.plugins.veracodescanner.model.prescan.Prescanresults;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.StatusType;
+import org.jenkinsci.plugins.veracodescanner.modules.IncrementalScan;
+import org.jenkinsci.plugins.veracodescanner.modules.ModuleSelector;
+import org.jenkinsci.plugins.veracodescanner.offload.OffloadAction;
+import org.jenkinsci.plugins.veracodescanner.offload.OffloadJob;
+import org.jenkinsci.plugins.veracodescanner.offload.OffloadQueue;
+import org.jenkinsci.plugins.veracodescanner.schedule.ScanScheduler;
+import org.jenkinsci.plugins.veracodescanner.staging.StagedFile;
+import org.jenkinsci.plugins.veracodescanner.staging.StagingArea;
+import org.jenkinsci.plugins.veracodescanner.submission.ResponseCapture;
+import org.jenkinsci.plugins.veracodescanner.submission.ScanSubmission;
+import org.jenkinsci.plugins.veracodescanner.submission.SubmissionHistory;
+import org.jenkinsci.plugins.veracodescanner.submission.SubmissionRunner;
+import org.jenkinsci.plugins.veracodescanner.submission.SubmissionStore;
+import org.jenkinsci.plugins.veracodescanner.telemetry.Telemetry;
+import org.jenkinsci.plugins.veracodescanner.upload.BandwidthProfile;
+import org.jenkinsci.plugins.veracodescanner.upload.UploadGovernor;
+import org.jenkinsci.plugins.veracodescanner.upload.UploadPipeline;
+import org.jenkinsci.plugins.veracodescanner.validate.ArtifactIssue;
+import org.jenkinsci.plugins.veracodescanner.validate.ArtifactValidator;
+import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
 import com.veracode.apiwrapper.wrappers.UploadAPIWrapper;
 
-public class VeracodeNotifier extends Notifier {
+public class VeracodeNotifier extends Notifier implements MatrixAggregatable {
+
+	private static final int APPLICATION_THREADS = Integer.getInteger(VeracodeNotifier.class.getName() + ".applicationThreads", 4);
 
 	private final String includes;
 	private final String applicationName;
@@ -65,9 +114,17 @@ public class VeracodeNotifier extends Notifier {
 	private final String platformName;
 	private final String scanName;
 	private final BuildTriggers triggers;
+	private final boolean supersedePending;
+	private final PolicyGate gate;
+	private final List<ApplicationTarget> additionalApplications;
+	private final IncrementalScan incrementalScan;
+	private final String moduleRules;
+	private final boolean offloadUpload;
 
 	@DataBoundConstructor
-	public VeracodeNotifier(String includes, String applicationName, int scanFrequency, int prescanTimeout, String platformName, String scanName, BuildTriggers triggers) {
+	public VeracodeNotifier(String includes, String applicationName, int scanFrequency, int prescanTimeout, String platformName, String scanName, BuildTriggers triggers,
+			boolean supersedePending, PolicyGate gate, List<ApplicationTarget> additionalApplications, IncrementalScan incrementalScan,
+			String moduleRules, boolean offloadUpload) {
 		this.includes = includes;
 		this.applicationName = applicationName;
 		this.scanFrequency = scanFrequency;
@@ -76,11 +133,20 @@ public class VeracodeNotifier extends Notifier {
 		this.scanName = scanName;
 
 		this.triggers = triggers;
+		this.supersedePending = supersedePending;
+		this.gate = gate;
+		this.additionalApplications = additionalApplications;
+		this.incrementalScan = incrementalScan;
+		this.moduleRules = moduleRules;
+		this.offloadUpload = offloadUpload;
 	}
 
+	/**
+	 * Runs after the build is finalized, unless the policy gate has to be able to change its result.
+	 */
 	@Override
 	public boolean needsToRunAfterFinalized() {
-		return true;
+		return gate == null;
 	}
 
 	public BuildStepMonitor getRequiredMonitorService() {
@@ -89,14 +155,31 @@ public class VeracodeNotifier extends Notifier {
 
 	@Override
 	public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+		if (build instanceof MatrixRun) {
+			listener.getLogger().println("Artifacts of this configuration are submitted to Veracode by the parent build.");
+			return true;
+		}
+		return submit(build, listener, null);
+	}
+
+	public MatrixAggregator createAggregator(MatrixBuild build, Launcher launcher, BuildListener listener) {
+		return new VeracodeMatrixAggregator(this, build, launcher, listener);
+	}
+
+	/**
+	 * @param collected
+	 *            for each of the {@link #getTargets() targets}, artifacts collected from the configurations of a matrix
+	 *            build keyed by their digest, or null to scan the workspace of the build
+	 */
+	boolean submit(AbstractBuild<?, ?> build, BuildListener listener, List<Map<String, FilePath>> collected) throws InterruptedException, IOException {
 		try {
 			if (triggers == null) {
-				performScan(build, listener);
+				performScan(build, listener, collected);
 			} else {
 				List<Cause> causes = build.getCauses();
 				for (Cause cause : causes) {
 					if (triggers.isTriggeredBy(cause.getClass())) {
-						performScan(build, listener);
+						performScan(build, listener, collected);
 						break;
 					}
 				}
@@ -152,70 +235,92 @@ public class VeracodeNotifier extends Notifier {
 		return triggers;
 	}
 
-	private void performScan(AbstractBuild<?, ?> build, BuildListener listener) throws IOException, InterruptedException, VeracodeScannerException {
-		try {
-			FilePath workspace = build.getWorkspace();
-			EnvVars envVars = build.getEnvironment(listener);
-
-			UploadAPIWrapper veracodeUploadClient = new UploadAPIWrapper();
-			veracodeUploadClient.setUpCredentials(getDescriptor().getVeracodeUser(), getDescriptor().getVeracodePass());
-
-			String appName = envVars.expand(applicationName);
-			String appId = getAppId(veracodeUploadClient, appName, listener);
-
-			if (appId != null) {
-				if (isScanNeeded(veracodeUploadClient, appId, listener)) {
-					if (scanName.length()>0) {
-						String customScanName = envVars.expand(scanName);
-						listener.getLogger().println("Creating Veracode scan: " + customScanName);
-						veracodeUploadClient.createBuild(appId, customScanName);
-					}
+	public boolean isSupersedePending() {
+		return supersedePending;
+	}
 
-					if (workspace.isRemote()) {
-						if (this.getDescriptor().getVerbose()) {
-							listener.getLogger().println("Remote workspace detected.");
-						}
+	public PolicyGate getGate() {
+		return gate;
+	}
 
-						if (this.getDescriptor().getRemote()) {
-							FilePath localWorkspace = new FilePath(build.getParent().getRootDir());
+	public String getModuleRules() {
+		return moduleRules;
+	}
 
-							if (this.getDescriptor().getVerbose()) {
-								listener.getLogger().println("Preparing workspace for file upload");
-							}
+	public boolean isOffloadUpload() {
+		return offloadUpload;
+	}
 
-							workspace = prepareLocalWorkspace(localWorkspace.withSuffix("/workspace-remote"), workspace);
+	/**
+	 * @return the module rules, or the rules equivalent to the platform name if there are none
+	 */
+	private String getEffectiveModuleRules() {
+		if (moduleRules != null && moduleRules.trim().length() > 0) {
+			return moduleRules;
+		}
+		return ModuleSelector.forPlatformName(platformName);
+	}
 
-							if (this.getDescriptor().getVerbose()) {
-								listener.getLogger().println("Files copied into " + workspace.getRemote());
-							}
+	public IncrementalScan getIncrementalScan() {
+		return incrementalScan;
+	}
 
-						} else {
-							listener.getLogger().println("[WARNING] Remote workspace detected. Please consider enabling Master/slave mode in the plugin settings");
-						}
-					}
+	public List<ApplicationTarget> getAdditionalApplications() {
+		return additionalApplications;
+	}
 
-					FilePath[] filesToScan = workspace.list(includes);
-					listener.getLogger().println("Uploading Files to Veracode: " + Arrays.toString(filesToScan));
-					listener.getLogger().println("Veracode User: " + getDescriptor().getVeracodeUser());
+	/**
+	 * @return the application of this step followed by the additional applications
+	 */
+	public List<ApplicationTarget> getTargets() {
+		List<ApplicationTarget> targets = new ArrayList<ApplicationTarget>();
+		targets.add(new ApplicationTarget(applicationName, includes));
+		if (additionalApplications != null) {
+			targets.addAll(additionalApplications);
+		}
+		return targets;
+	}
 
-					List<File> filesToUpload = convertFilePaths(filesToScan);
-					for (File file : filesToUpload) {
-						veracodeUploadClient.uploadFile(appId, file.getAbsolutePath());
-					}
+	private void performScan(final AbstractBuild<?, ?> build, BuildListener listener, List<Map<String, FilePath>> collected) throws IOException,
+			InterruptedException, VeracodeScannerException {
+		try {
+			final EnvVars envVars = build.getEnvironment(listener);
 
-					if (!filesToUpload.isEmpty()) {
-						Prescanresults prescanResult = executePreScan(veracodeUploadClient, appId, listener);
-						executeScan(veracodeUploadClient, appId, listener, prescanResult);
-					}
+			final List<ApplicationTarget> targets = getTargets();
+			final List<String> appNames = new ArrayList<String>();
+			for (ApplicationTarget target : targets) {
+				appNames.add(envVars.expand(target.getApplicationName()));
+			}
+			CredentialPool.Account defaultAccount = CredentialPool.get().getDefault();
+			UploadAPIWrapper veracodeUploadClient = defaultAccount.borrowClient();
+			final Map<String, String> appIds;
+			Telemetry.Span resolve = Telemetry.get().phase("resolve", null);
+			boolean resolved = false;
+			try {
+				appIds = getAppIds(veracodeUploadClient, appNames, listener);
+				resolved = true;
+			} finally {
+				resolve.end(resolved);
+				defaultAccount.returnClient(veracodeUploadClient);
+			}
+			for (String appName : appNames) {
+				if (appIds.get(appName) == null) {
+					throw new VeracodeScannerException("Failed to get application id for app " + appName);
+				}
+			}
 
-					listener.getLogger().println("Veracode Scan Succeeded.  Email will be sent once results are ready.");
+			// all applications of this build share its upload bandwidth
+			final UploadGovernor.Lease lease = UploadGovernor.get().open(build.getFullDisplayName());
+			try {
+				if (targets.size() == 1) {
+					scanApplication(targets.get(0), appNames.get(0), appIds.get(appNames.get(0)), collected == null ? null : collected.get(0), envVars, lease,
+							build, listener);
 				} else {
-					listener.getLogger().println("Veracode scan is not needed at this time.");
+					scanApplications(targets, appNames, appIds, collected, envVars, lease, build, listener);
 				}
-			} else {
-				throw new VeracodeScannerException("Failed to get application id for app " + appName);
+			} finally {
+				lease.close();
 			}
-
 		} catch (IOException e) {
 			throw new VeracodeScannerException("Veracode scan failed.", e);
 		} catch (InterruptedException ie) {
@@ -224,185 +329,513 @@ public class VeracodeNotifier extends Notifier {
 
 	}
 
-	private FilePath prepareLocalWorkspace(FilePath localWorkspace, FilePath remoteWorkspace) throws VeracodeScannerException, InterruptedException {
+	/**
+	 * Submits to several applications concurrently, each with its output prefixed by the application name.
+	 */
+	private void scanApplications(final List<ApplicationTarget> targets, final List<String> appNames, final Map<String, String> appIds,
+			final List<Map<String, FilePath>> collected, final EnvVars envVars, final UploadGovernor.Lease lease, final AbstractBuild<?, ?> build,
+			final BuildListener listener) throws InterruptedException, VeracodeScannerException {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(APPLICATION_THREADS, targets.size()), new DaemonThreadFactory());
 		try {
-
-			if (localWorkspace.exists()) {
-				localWorkspace.deleteContents();
-			} else {
-				localWorkspace.mkdirs();
+			List<Future<Void>> scans = new ArrayList<Future<Void>>();
+			for (int i = 0; i < targets.size(); i++) {
+				final int index = i;
+				scans.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						String appName = appNames.get(index);
+						BuildListener appListener = new StreamBuildListener(new PrefixedOutputStream(listener.getLogger(), "[" + appName + "] ",
+								build.getCharset()), build.getCharset());
+						try {
+							scanApplication(targets.get(index), appName, appIds.get(appName), collected == null ? null : collected.get(index), envVars, lease,
+									build, appListener);
+						} finally {
+							appListener.getLogger().flush();
+						}
+						return null;
+					}
+				}));
 			}
 
-			remoteWorkspace.copyRecursiveTo(includes, localWorkspace);
-
-			return localWorkspace;
-		} catch (IOException e) {
-			throw new VeracodeScannerException("Could not prepare local workspace", e);
+			// let every application finish before reporting the first failure
+			VeracodeScannerException failure = null;
+			for (int i = 0; i < scans.size(); i++) {
+				try {
+					scans.get(i).get();
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause() instanceof VeracodeScannerException ? (VeracodeScannerException) e.getCause() : new VeracodeScannerException(
+								"Veracode scan of " + appNames.get(i) + " failed.", e.getCause());
+					}
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		} finally {
+			executor.shutdownNow();
 		}
 	}
 
-	private boolean isScanNeeded(UploadAPIWrapper veracodeUploadClient, String appId, BuildListener listener) throws VeracodeScannerException {
-		boolean scanNeeded = false;
+	private void scanApplication(ApplicationTarget target, String appName, String appId, Map<String, FilePath> collected, EnvVars envVars,
+			UploadGovernor.Lease lease, AbstractBuild<?, ?> build, BuildListener listener) throws IOException, InterruptedException, VeracodeScannerException {
+		CredentialPool.Account account = CredentialPool.get().accountFor(appId);
+		if (CredentialPool.get().getAccounts().size() > 1) {
+			listener.getLogger().println("Using Veracode API user " + account.getUser() + " for this application.");
+		}
+		UploadAPIWrapper veracodeUploadClient = account.borrowClient();
+		account.submissionStarted();
 		try {
-			JAXBContext jaxbContext = JAXBContext.newInstance(Buildinfo.class);
-			Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+			scanApplication(veracodeUploadClient, account, target, appName, appId, collected, envVars, lease, build, listener);
+		} finally {
+			account.submissionFinished();
+			account.returnClient(veracodeUploadClient);
+		}
+	}
 
-			Buildinfo buildInfo = (Buildinfo) jaxbUnmarshaller.unmarshal(new StringReader(veracodeUploadClient.getBuildInfo(appId)));
+	private void scanApplication(UploadAPIWrapper veracodeUploadClient, CredentialPool.Account account, ApplicationTarget target, String appName, String appId,
+			Map<String, FilePath> collected, EnvVars envVars, UploadGovernor.Lease lease, AbstractBuild<?, ?> build, BuildListener listener)
+			throws IOException, InterruptedException, VeracodeScannerException {
+		String rules = getEffectiveModuleRules();
+		try {
+			ModuleSelector.compile(rules);
+		} catch (IllegalArgumentException e) {
+			throw new VeracodeScannerException("Invalid module rules. " + e.getMessage(), e);
+		}
 
-			if (buildInfo.getBuild().isResultsReady()) {
-				// There could be multiple analysis units per build, but we'll just grab the first one and use it
-				if (buildInfo.getBuild().getAnalysisUnit().isEmpty()) {
-					// default to true if the last build didn't include any analysis units
-					listener.getLogger().println("No analysis units are present in the last build, so another scan is going to be initiated.");
-					scanNeeded = true;
-				} else {
-					AnalysisUnitType analysisUnit = buildInfo.getBuild().getAnalysisUnit().get(0);
-					long lastScan = analysisUnit.getPublishedDate().toGregorianCalendar().getTimeInMillis();
-					long timeSinceLastScan = System.currentTimeMillis() - lastScan;
-					long scanFrequencyInMillis = Long.valueOf(scanFrequency) * 24l * 60l * 60l * 1000l;
-					if (timeSinceLastScan > scanFrequencyInMillis) {
-						scanNeeded = true;
-					}
+		// the policy gate needs the Veracode build id before the build can finish
+		boolean offload = offloadUpload && gate == null;
+		if (offloadUpload && gate != null) {
+			listener.getLogger().println("Uploading while the build runs, as the policy gate needs the Veracode build.");
+		}
+		boolean scan = false;
+		ScanSubmission submission = null;
+		Buildinfo buildInfo;
+		Telemetry.Span decide = Telemetry.get().phase("decide", appId);
+		boolean decided = false;
+		try {
+			synchronized (SubmissionStore.get().lockFor(appId)) {
+				buildInfo = getBuildInfo(veracodeUploadClient, appId);
+				List<ScanSubmission> pending = SubmissionStore.get().findPending(appId);
+				List<OffloadJob> queued = OffloadQueue.get().findQueued(appId);
+				if (supersedePending && (isWaitingForPrescan(buildInfo) || !pending.isEmpty() || !queued.isEmpty())) {
+					supersede(veracodeUploadClient, appId, buildInfo, pending, queued, build, listener);
+					scan = true;
+				} else if (!queued.isEmpty()) {
+					listener.getLogger().println("Upload of " + queued.get(0).getJob() + " #" + queued.get(0).getBuildNumber()
+							+ " to this application is still queued, so do not initiate a new scan.");
+				} else if (isScanNeeded(buildInfo, listener)) {
+					scan = true;
+				}
+				if (scan && !offload) {
+					submission = SubmissionStore.get().open(build.getParent().getFullName(), build.getNumber(), appId, platformName, prescanTimeout, account.getUser(), rules);
 				}
+			}
+			decided = true;
+		} finally {
+			decide.end(decided);
+		}
+		if (scan && offload) {
+			Telemetry.Span stage = Telemetry.get().phase("offload", appId);
+			boolean staged = false;
+			try {
+				offload(account, target, appName, appId, rules, collected, envVars, build, listener);
+				staged = true;
+			} finally {
+				stage.end(staged);
+			}
+			return;
+		}
+
+		SubmissionHistory.Entry duplicateOf = null;
+		if (submission != null) {
+			try {
+				duplicateOf = uploadAndScan(veracodeUploadClient, account, appId, submission, target.getIncludes(), collected, envVars, lease, build, listener);
+			} finally {
+				SubmissionStore.get().close(submission);
+			}
+
+			if (submission.getSupersededBy() != null) {
+				listener.getLogger().println("Veracode scan was superseded by " + submission.getSupersededBy() + ".");
+			} else if (duplicateOf != null) {
+				listener.getLogger().println("The same artifacts" + (duplicateOf.getRevision() != null ? " of revision " + duplicateOf.getRevision() : "")
+						+ " were already submitted to this application by " + duplicateOf + ", skipping the scan.");
+			} else if (submission.isBuildDeleted()) {
+				listener.getLogger().println("No module changed since it was last scanned, the Veracode build was deleted without a scan.");
 			} else {
-				listener.getLogger().println("Last scan is still in progress, so do not initiate a new scan.");
+				listener.getLogger().println("Veracode Scan Succeeded.  Email will be sent once results are ready.");
+			}
+		} else {
+			listener.getLogger().println("Veracode scan is not needed at this time.");
+		}
+
+		Long veracodeBuildId = null;
+		if (duplicateOf != null) {
+			veracodeBuildId = duplicateOf.getVeracodeBuildId();
+		} else if (submission != null) {
+			veracodeBuildId = submission.getSupersededBy() == null && !submission.isBuildDeleted() ? submission.getVeracodeBuildId() : null;
+		} else if (buildInfo != null && buildInfo.getBuild() != null) {
+			veracodeBuildId = buildInfo.getBuild().getBuildId();
+		}
+		if (veracodeBuildId != null) {
+			build.addAction(new VeracodeBuildAction(appName, appId, veracodeBuildId));
+			if (gate != null) {
+				Result result;
+				Telemetry.Span evaluate = Telemetry.get().phase("gate", appId);
+				boolean evaluated = false;
+				try {
+					result = gate.evaluate(appId, veracodeBuildId, listener);
+					evaluated = true;
+				} finally {
+					evaluate.end(evaluated);
+				}
+				if (result.isWorseThan(Result.SUCCESS)) {
+					build.setResult(result);
+				}
+			} else if (submission != null && duplicateOf == null) {
+				List<AbstractProject<?, ?>> triggered = VeracodeResultsTrigger.getTriggeredJobs(appName);
+				if (!triggered.isEmpty()) {
+					ResultPoller.get().watch(appId, appName, veracodeBuildId);
+					listener.getLogger().println("Results of Veracode build " + veracodeBuildId + " will trigger " + triggered.size() + " job(s).");
+				}
 			}
-		} catch (IOException e) {
-			throw new VeracodeScannerException("Unable to read scanning frequency file.", e);
-		} catch (JAXBException e) {
-			listener.getLogger().println("Failed to get build info to determine if scan is needed.  We'll assume one is needed.");
-			scanNeeded = true;
 		}
-		return scanNeeded;
 	}
 
-	private String getAppId(UploadAPIWrapper veracodeUploadClient, String applicationName, BuildListener listener) throws VeracodeScannerException {
-		String appId = null;
+	/**
+	 * @return the earlier submission of the same artifacts if the scan was skipped as a duplicate, otherwise null
+	 */
+	private SubmissionHistory.Entry uploadAndScan(UploadAPIWrapper veracodeUploadClient, CredentialPool.Account account, String appId, ScanSubmission submission, String includes,
+			Map<String, FilePath> collected, EnvVars envVars, UploadGovernor.Lease lease, AbstractBuild<?, ?> build, BuildListener listener)
+			throws IOException, InterruptedException, VeracodeScannerException {
+		deleteLegacyWorkspaces(build, listener);
+		listener.getLogger().println("Uploading Files to Veracode as " + account.getUser());
+		boolean skipDuplicates = Boolean.TRUE.equals(getDescriptor().getSkipDuplicates());
+		boolean validate = Boolean.TRUE.equals(getDescriptor().getValidateArtifacts());
+		// both checks need all artifacts before anything is uploaded
+		boolean holdUploads = skipDuplicates || validate;
+		String revision = getRevision(envVars);
+		String submissionKey = null;
+
+		UploadPipeline pipeline = new UploadPipeline(account, appId, submission, lease, skipDuplicates || incrementalScan != null,
+				Boolean.TRUE.equals(getDescriptor().getRemote()), Boolean.TRUE.equals(getDescriptor().getVerbose()), listener.getLogger());
+		List<UploadPipeline.Artifact> uploaded;
+		Telemetry.Span upload = Telemetry.get().phase("upload", appId);
+		boolean finished = false;
 		try {
-			String appListXml = veracodeUploadClient.getAppList();
-			JAXBContext jaxbContext = JAXBContext.newInstance(Applist.class);
-			Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-			Applist appList = (Applist) jaxbUnmarshaller.unmarshal(new StringReader(appListXml));
+			if (!holdUploads) {
+				createBuild(veracodeUploadClient, appId, submission, envVars, listener);
+			}
+			if (collected == null) {
+				pipeline.start(build.getWorkspace(), includes, holdUploads);
+			} else {
+				pipeline.start(collected, holdUploads);
+			}
 
-			for (AppType app : appList.getApp()) {
-				if (app.getAppName().equalsIgnoreCase(applicationName)) {
-					appId = app.getAppId().toString();
-					break;
+			if (holdUploads) {
+				List<UploadPipeline.Artifact> artifacts = pipeline.awaitPackaged();
+				List<String> digests = new ArrayList<String>();
+				List<File> files = new ArrayList<File>();
+				for (UploadPipeline.Artifact artifact : artifacts) {
+					digests.add(artifact.getDigest());
+					files.add(artifact.getFile());
+				}
+				if (skipDuplicates && !artifacts.isEmpty()) {
+					submissionKey = SubmissionHistory.key(appId, revision, digests);
+					SubmissionHistory.Entry previous = SubmissionHistory.get().find(submissionKey);
+					if (previous != null) {
+						return previous;
+					}
+				}
+				if (validate) {
+					validateArtifacts(files, listener);
 				}
+				createBuild(veracodeUploadClient, appId, submission, envVars, listener);
+				pipeline.releaseUploads();
 			}
-			if (appId == null) {
-				listener.getLogger().println("App with name " + applicationName + " was not found.  List of apps available below: " + appListXml);
+
+			uploaded = pipeline.awaitUploaded();
+			listener.getLogger().println(pipeline.getSummary());
+			if (uploaded.size() > 1 && submission.getSupersededBy() == null) {
+				listener.getLogger().println("Upload finished: " + lease.getTotalTransfer());
 			}
-		} catch (Exception e) {
-			listener.getLogger().println(e.getMessage());
-			throw new VeracodeScannerException(e);
+			finished = true;
+		} finally {
+			pipeline.close();
+			upload.end(finished);
 		}
 
-		return appId;
-	}
-
-	private Prescanresults executePreScan(UploadAPIWrapper veracodeUploadClient, String appId, BuildListener listener) throws VeracodeScannerException {
-		listener.getLogger().println("Starting execution of prescan.");
-		Prescanresults results = null;
-		try {
-			veracodeUploadClient.beginPreScan(appId);
-			JAXBContext jaxbContext = JAXBContext.newInstance(Prescanresults.class);
-			Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-			int attemptsLeft = prescanTimeout;
-			while (attemptsLeft > 0) {
-				String preScanResultsXml = veracodeUploadClient.getPreScanResults(appId);
-				if (getDescriptor().getVerbose()) {
-					listener.getLogger().println(preScanResultsXml);
+		if (!uploaded.isEmpty()) {
+			if (incrementalScan != null) {
+				Map<String, String> moduleDigests = new HashMap<String, String>();
+				for (UploadPipeline.Artifact artifact : uploaded) {
+					moduleDigests.put(artifact.getName(), artifact.getDigest());
 				}
-				listener.getLogger().println("Attempts Left: " + attemptsLeft);
-				try {
-					results = (Prescanresults) jaxbUnmarshaller.unmarshal(new StringReader(preScanResultsXml));
-				} catch (JAXBException je) {
-					// Results not available yet, just ignore this exception for now.
-				}
-				if (results == null) {
-					attemptsLeft--;
-					// Wait 60 seconds and try again
-					Thread.sleep(60000);
-				} else {
-					break;
+				SubmissionStore.get().scanChangedModules(submission, moduleDigests, incrementalScan.getFullScanDays());
+			}
+			SubmissionStore.get().transition(submission, ScanSubmission.State.UPLOADED);
+			ResponseCapture capture = null;
+			if (Boolean.TRUE.equals(getDescriptor().getVerbose())) {
+				capture = new ResponseCapture(new File(build.getArtifactsDir(), "veracode/responses-" + appId + ".xml.gz"));
+			}
+			Telemetry.Span scan = Telemetry.get().phase("scan", appId);
+			boolean started = false;
+			try {
+				new SubmissionRunner(veracodeUploadClient, listener, getDescriptor().getVerbose(), capture).run(submission);
+				started = true;
+			} finally {
+				scan.end(started);
+				if (capture != null) {
+					capture.close();
+					if (capture.getFile().exists()) {
+						listener.getLogger().println("Raw Veracode responses are archived as veracode/" + capture.getFile().getName() + ".");
+					}
 				}
 			}
-		} catch (Exception e) {
-			listener.getLogger().println("Failed to get pre scan results. " + e.getMessage());
-			throw new VeracodeScannerException(e);
 		}
-		if (results == null) {
-			throw new VeracodeScannerException("Unable to get prescan results");
+
+		if (submissionKey != null && submission.getState() == ScanSubmission.State.SCAN_STARTED) {
+			SubmissionHistory.get().record(submissionKey, build.getParent().getFullName(), build.getNumber(), revision, submission.getVeracodeBuildId());
 		}
-		listener.getLogger().println("Prescan is finished.");
-		return results;
+		return null;
 	}
 
-	private void executeScan(UploadAPIWrapper veracodeUploadClient, String appId, BuildListener listener, Prescanresults resultsOfPrescan)
-			throws VeracodeScannerException {
-		listener.getLogger().println("Starting execution of scan.");
+	/**
+	 * Stages the artifacts on the controller and queues their upload, so that the build does not wait for it.
+	 */
+	private void offload(CredentialPool.Account account, ApplicationTarget target, String appName, String appId, String rules, Map<String, FilePath> collected,
+			EnvVars envVars, AbstractBuild<?, ?> build, BuildListener listener) throws IOException, InterruptedException, VeracodeScannerException {
+		long start = System.currentTimeMillis();
+		List<StagedFile> staged = new ArrayList<StagedFile>();
+		boolean queued = false;
 		try {
-			String moduleId = null;
-			String platform = null;
-			String scanAllModules = "true";
-
-			for (ModuleType module : resultsOfPrescan.getModule()) {
-				if (platformName.length()>0) {
-					platform = module.getPlatform();
-
-					if (platform.contains(platformName)) {
-						moduleId = module.getId().toString();
+			if (collected == null) {
+				FilePath workspace = build.getWorkspace();
+				Fingerprints fingerprints = fingerprint(workspace, target.getIncludes(), listener);
+				for (FilePath file : workspace.list(target.getIncludes())) {
+					staged.add(StagingArea.get().stage(file, fingerprints.getDigest(file.getRemote())));
+				}
+			} else {
+				for (Map.Entry<String, FilePath> file : collected.entrySet()) {
+					staged.add(StagingArea.get().stage(file.getValue(), file.getKey()));
+				}
+			}
+			if (staged.isEmpty()) {
+				listener.getLogger().println("No files match " + target.getIncludes() + ", nothing to upload.");
+				return;
+			}
+			listener.getLogger().println("Staged " + staged + " in " + (System.currentTimeMillis() - start) + " ms.");
 
-						if (moduleId.length()>0) {
-							scanAllModules = "false";
-							break;
-						}
+			List<String> digests = new ArrayList<String>();
+			List<File> files = new ArrayList<File>();
+			for (StagedFile file : staged) {
+				digests.add(file.getDigest());
+				files.add(StagingArea.get().getFile(file));
+			}
+			String revision = getRevision(envVars);
+			String submissionKey = null;
+			if (Boolean.TRUE.equals(getDescriptor().getSkipDuplicates())) {
+				submissionKey = SubmissionHistory.key(appId, revision, digests);
+				SubmissionHistory.Entry previous = SubmissionHistory.get().find(submissionKey);
+				if (previous != null) {
+					listener.getLogger().println("The same artifacts" + (revision != null ? " of revision " + revision : "")
+							+ " were already submitted to this application by " + previous + ", skipping the scan.");
+					if (previous.getVeracodeBuildId() != null) {
+						build.addAction(new VeracodeBuildAction(appName, appId, previous.getVeracodeBuildId()));
 					}
+					return;
 				}
+			}
+			if (Boolean.TRUE.equals(getDescriptor().getValidateArtifacts())) {
+				validateArtifacts(files, listener);
+			}
 
-				if (module.isHasFatalErrors()) {
-					throw new VeracodeScannerException("Prescan failed for some modules.  Check prescan results.");
+			OffloadJob job = new OffloadJob(UUID.randomUUID().toString(), build.getParent().getFullName(), build.getNumber(), appName, appId, account.getUser(),
+					platformName, prescanTimeout, rules, scanName.length() > 0 ? envVars.expand(scanName) : null, staged,
+					incrementalScan != null ? incrementalScan.getFullScanDays() : null, submissionKey, revision);
+			OffloadQueue.get().enqueue(job);
+			queued = true;
+			OffloadAction.add(build, job);
+			listener.getLogger().println("Queued the upload to Veracode, its progress is shown on the Veracode Upload page of this build.");
+		} finally {
+			if (!queued) {
+				for (StagedFile file : staged) {
+					StagingArea.get().release(file);
 				}
 			}
+		}
+	}
+
+	private Fingerprints fingerprint(FilePath workspace, String includes, BuildListener listener) throws IOException, InterruptedException {
+		Fingerprints fingerprints = Fingerprinter.fingerprint(workspace, includes);
+		listener.getLogger().println(fingerprints.getThroughput());
+		return fingerprints;
+	}
+
+	private void createBuild(UploadAPIWrapper veracodeUploadClient, String appId, ScanSubmission submission, EnvVars envVars, BuildListener listener)
+			throws IOException {
+		if (scanName.length()>0) {
+			String customScanName = envVars.expand(scanName);
+			listener.getLogger().println("Creating Veracode scan: " + customScanName);
+			SubmissionStore.get().buildCreated(submission, veracodeUploadClient.createBuild(appId, customScanName));
+		}
+	}
 
-			if (moduleId != null) {
-				listener.getLogger().println("Selected module id: " + moduleId + " (" + platform + ")");
+	/**
+	 * Deletes the per-job copies of remote workspaces made by earlier versions.
+	 */
+	private void deleteLegacyWorkspaces(AbstractBuild<?, ?> build, BuildListener listener) throws IOException, InterruptedException {
+		File[] dirs = build.getParent().getRootDir().listFiles();
+		for (File dir : dirs == null ? new File[0] : dirs) {
+			if (dir.isDirectory() && dir.getName().startsWith("workspace-remote")) {
+				new FilePath(dir).deleteRecursive();
+				listener.getLogger().println("Deleted " + dir.getName() + ", remote artifacts are now staged in a shared cache.");
 			}
+		}
+	}
 
-			String buildInfoXml = veracodeUploadClient.beginScan(appId, moduleId, scanAllModules);
+	/**
+	 * Stops the submission before anything is uploaded if the prescan would most likely fail.
+	 */
+	private void validateArtifacts(List<File> files, BuildListener listener) throws InterruptedException, VeracodeScannerException {
+		long start = System.currentTimeMillis();
+		List<ArtifactIssue> issues = new ArtifactValidator().validate(files);
+		boolean fatal = false;
+		for (ArtifactIssue issue : issues) {
+			listener.getLogger().println(issue);
+			fatal |= issue.isFatal();
+		}
+		listener.getLogger().println("Validated " + files.size() + " artifact(s) in " + (System.currentTimeMillis() - start) + " ms.");
+		if (fatal) {
+			throw new VeracodeScannerException("Artifacts would fail the Veracode prescan, not submitting them.");
+		}
+	}
 
-			if (getDescriptor().getVerbose()) {
-				listener.getLogger().println(buildInfoXml);
+	private static String getRevision(EnvVars envVars) {
+		for (String variable : new String[] { "GIT_COMMIT", "SVN_REVISION", "MERCURIAL_REVISION" }) {
+			String revision = envVars.get(variable);
+			if (revision != null && revision.length() > 0) {
+				return revision;
 			}
-		} catch (Exception e) {
-			throw new VeracodeScannerException(e);
 		}
-		listener.getLogger().println("Scan has been started.");
+		return null;
 	}
 
-	private List<File> convertFilePaths(FilePath[] filePaths) throws VeracodeScannerException {
-		List<File> files = new ArrayList<File>();
+	private Buildinfo getBuildInfo(UploadAPIWrapper veracodeUploadClient, String appId) throws VeracodeScannerException {
+		try {
+			JAXBContext jaxbContext = JAXBContext.newInstance(Buildinfo.class);
+			Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
 
-		for (FilePath path : filePaths) {
-			files.add(getFile(path));
+			return (Buildinfo) jaxbUnmarshaller.unmarshal(new StringReader(veracodeUploadClient.getBuildInfo(appId)));
+		} catch (IOException e) {
+			throw new VeracodeScannerException("Unable to read scanning frequency file.", e);
+		} catch (JAXBException e) {
+			return null;
 		}
+	}
 
-		return files;
+	private boolean isScanNeeded(Buildinfo buildInfo, BuildListener listener) {
+		boolean scanNeeded = false;
+		if (buildInfo == null) {
+			listener.getLogger().println("Failed to get build info to determine if scan is needed.  We'll assume one is needed.");
+			scanNeeded = true;
+		} else if (buildInfo.getBuild().isResultsReady()) {
+			// There could be multiple analysis units per build, but we'll just grab the first one and use it
+			if (buildInfo.getBuild().getAnalysisUnit().isEmpty()) {
+				// default to true if the last build didn't include any analysis units
+				listener.getLogger().println("No analysis units are present in the last build, so another scan is going to be initiated.");
+				scanNeeded = true;
+			} else {
+				AnalysisUnitType analysisUnit = buildInfo.getBuild().getAnalysisUnit().get(0);
+				long lastScan = analysisUnit.getPublishedDate().toGregorianCalendar().getTimeInMillis();
+				CompletionEstimator.get().recordScanCompletion(Long.toString(buildInfo.getAppId()), buildInfo.getBuild().getBuildId(), lastScan);
+				if (Boolean.TRUE.equals(getDescriptor().getStaggerScans())) {
+					String appId = Long.toString(buildInfo.getAppId());
+					long nextScan = ScanScheduler.getNextScan(appId, scanFrequency, lastScan);
+					scanNeeded = System.currentTimeMillis() >= nextScan;
+					if (!scanNeeded) {
+						listener.getLogger().println("Next Veracode scan of this application is scheduled for " + new Date(nextScan) + ".");
+					}
+				} else {
+					long timeSinceLastScan = System.currentTimeMillis() - lastScan;
+					long scanFrequencyInMillis = Long.valueOf(scanFrequency) * 24l * 60l * 60l * 1000l;
+					if (timeSinceLastScan > scanFrequencyInMillis) {
+						scanNeeded = true;
+					}
+				}
+			}
+		} else {
+			listener.getLogger().println("Last scan is still in progress, so do not initiate a new scan.");
+		}
+		return scanNeeded;
 	}
 
-	private File getFile(FilePath path) throws VeracodeScannerException {
-		File file;
+	private boolean isWaitingForPrescan(Buildinfo buildInfo) {
+		if (buildInfo == null || buildInfo.getBuild() == null || Boolean.TRUE.equals(buildInfo.getBuild().isResultsReady())
+				|| buildInfo.getBuild().getAnalysisUnit().isEmpty()) {
+			return false;
+		}
+		StatusType status = buildInfo.getBuild().getAnalysisUnit().get(0).getStatus();
+		return status == StatusType.INCOMPLETE || status == StatusType.PRE_SCAN_SUBMITTED || status == StatusType.PRE_SCAN_SUCCESS;
+	}
+
+	private void supersede(UploadAPIWrapper veracodeUploadClient, String appId, Buildinfo buildInfo, List<ScanSubmission> pending, List<OffloadJob> queued,
+			AbstractBuild<?, ?> build, BuildListener listener) throws VeracodeScannerException {
+		String replacement = build.getFullDisplayName();
+		for (ScanSubmission older : pending) {
+			SubmissionStore.get().supersede(older, replacement);
+			listener.getLogger().println("Pending Veracode submission of " + older.getJob() + " #" + older.getBuildNumber() + " is superseded by " + replacement);
+		}
+		for (OffloadJob older : queued) {
+			OffloadQueue.get().supersede(older, replacement);
+			listener.getLogger().println("Queued Veracode upload of " + older.getJob() + " #" + older.getBuildNumber() + " is superseded by " + replacement);
+		}
 
+		if (isWaitingForPrescan(buildInfo)) {
+			Long veracodeBuildId = buildInfo.getBuild().getBuildId();
+			try {
+				veracodeUploadClient.deleteBuild(appId);
+			} catch (IOException e) {
+				throw new VeracodeScannerException("Unable to delete pending Veracode build " + veracodeBuildId, e);
+			}
+			listener.getLogger().println("Deleted pending Veracode build " + veracodeBuildId + " (" + buildInfo.getBuild().getAnalysisUnit().get(0).getStatus().value()
+					+ "), superseded by " + replacement);
+		}
+	}
+
+	public static String getAppId(UploadAPIWrapper veracodeUploadClient, String applicationName, TaskListener listener) throws VeracodeScannerException {
+		return getAppIds(veracodeUploadClient, Collections.singletonList(applicationName), listener).get(applicationName);
+	}
+
+	/**
+	 * Resolves several application names with a single app list request.
+	 * 
+	 * @return the application ids keyed by the given names, null for applications that were not found
+	 */
+	public static Map<String, String> getAppIds(UploadAPIWrapper veracodeUploadClient, List<String> applicationNames, TaskListener listener)
+			throws VeracodeScannerException {
+		Map<String, String> appIds = new HashMap<String, String>();
 		try {
-			file = path.act(new FileGetter());
-		} catch (IOException e) {
-			throw new VeracodeScannerException("Could not load the build artifact to send.", e);
-		} catch (InterruptedException e) {
-			throw new VeracodeScannerException("The file operation was interrupted.", e);
+			String appListXml = veracodeUploadClient.getAppList();
+			JAXBContext jaxbContext = JAXBContext.newInstance(Applist.class);
+			Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+			Applist appList = (Applist) jaxbUnmarshaller.unmarshal(new StringReader(appListXml));
+			AppNameIndex index = AppListCache.get().update(appList);
+
+			for (String applicationName : applicationNames) {
+				String appId = index.getAppId(applicationName);
+				if (appId == null) {
+					List<String> closest = index.closest(applicationName, 5);
+					listener.getLogger().println("App with name " + applicationName + " was not found among " + index.size() + " applications."
+							+ (closest.isEmpty() ? "" : "  Did you mean " + closest + "?"));
+				}
+				appIds.put(applicationName, appId);
+			}
+		} catch (Exception e) {
+			listener.getLogger().println(e.getMessage());
+			throw new VeracodeScannerException(e);
 		}
 
-		return file;
+		return appIds;
 	}
 
 	@Override
@@ -420,10 +853,18 @@ public class VeracodeNotifier extends Notifier {
 		private Boolean remote;
 		private Boolean fails;
 		private String defaultPrescanTimeout;
+		private String uploadBandwidth;
+		private String bandwidthProfiles;
+		private Boolean staggerScans;
+		private Boolean skipDuplicates;
+		private List<ApiCredential> additionalCredentials;
+		private Boolean validateArtifacts;
 
 		public DescriptorImpl() {
 			super(VeracodeNotifier.class);
 			load();
+			applyUploadBandwidth();
+			applyCredentials();
 		}
 
 		@Override
@@ -448,10 +889,42 @@ public class VeracodeNotifier extends Notifier {
 			verbose = o.getBoolean("verbose");
 			remote = o.getBoolean("remote");
 			fails = o.getBoolean("fails");
+			uploadBandwidth = o.getString("uploadBandwidth");
+			bandwidthProfiles = o.getString("bandwidthProfiles");
+			staggerScans = o.getBoolean("staggerScans");
+			skipDuplicates = o.getBoolean("skipDuplicates");
+			validateArtifacts = o.getBoolean("validateArtifacts");
+			Object credentials = o.opt("additionalCredentials");
+			additionalCredentials = credentials == null ? new ArrayList<ApiCredential>() : req.bindJSONToList(ApiCredential.class, credentials);
 			save();
+			applyUploadBandwidth();
+			applyCredentials();
 			return super.configure(req, o);
 		}
 
+		private void applyUploadBandwidth() {
+			long bytesPerSecond = 0;
+			List<BandwidthProfile> profiles = new ArrayList<BandwidthProfile>();
+			try {
+				if (uploadBandwidth != null && uploadBandwidth.trim().length() > 0) {
+					bytesPerSecond = Long.parseLong(uploadBandwidth.trim()) * 1024l;
+				}
+				profiles = BandwidthProfile.parse(bandwidthProfiles);
+			} catch (IllegalArgumentException e) {
+				// invalid settings are reported by form validation, fall back to whatever could be parsed
+			}
+			UploadGovernor.get().configure(bytesPerSecond, profiles);
+		}
+
+		private void applyCredentials() {
+			List<ApiCredential> credentials = new ArrayList<ApiCredential>();
+			credentials.add(new ApiCredential(veracodeUser, veracodePass));
+			if (additionalCredentials != null) {
+				credentials.addAll(additionalCredentials);
+			}
+			CredentialPool.get().configure(credentials);
+		}
+
 		public String getVeracodeUser() {
 			return veracodeUser;
 		}
@@ -500,6 +973,98 @@ public class VeracodeNotifier extends Notifier {
 			this.fails = fails;
 		}
 
+		public String getUploadBandwidth() {
+			return uploadBandwidth;
+		}
+
+		public void setUploadBandwidth(String uploadBandwidth) {
+			this.uploadBandwidth = uploadBandwidth;
+		}
+
+		public String getBandwidthProfiles() {
+			return bandwidthProfiles;
+		}
+
+		public void setBandwidthProfiles(String bandwidthProfiles) {
+			this.bandwidthProfiles = bandwidthProfiles;
+		}
+
+		public Boolean getStaggerScans() {
+			return staggerScans;
+		}
+
+		public void setStaggerScans(Boolean staggerScans) {
+			this.staggerScans = staggerScans;
+		}
+
+		public Boolean getSkipDuplicates() {
+			return skipDuplicates;
+		}
+
+		public void setSkipDuplicates(Boolean skipDuplicates) {
+			this.skipDuplicates = skipDuplicates;
+		}
+
+		public Boolean getValidateArtifacts() {
+			return validateArtifacts;
+		}
+
+		public void setValidateArtifacts(Boolean validateArtifacts) {
+			this.validateArtifacts = validateArtifacts;
+		}
+
+		public List<ApiCredential> getAdditionalCredentials() {
+			return additionalCredentials;
+		}
+
+		public void setAdditionalCredentials(List<ApiCredential> additionalCredentials) {
+			this.additionalCredentials = additionalCredentials;
+		}
+
+		public AutoCompletionCandidates doAutoCompleteApplicationName(@AncestorInPath Item item, @QueryParameter String value) {
+			AutoCompletionCandidates candidates = new AutoCompletionCandidates();
+			if (!mayListApplications(item)) {
+				return candidates;
+			}
+			for (String name : AppListCache.get().getIndex().startingWith(value, 20)) {
+				candidates.add(name);
+			}
+			return candidates;
+		}
+
+		public FormValidation doCheckApplicationName(@AncestorInPath Item item, @QueryParameter String value) {
+			if (value.trim().length() == 0) {
+				return FormValidation.error("Please specify the Veracode application name.");
+			}
+			if (!mayListApplications(item)) {
+				return FormValidation.ok();
+			}
+			AppNameIndex index = AppListCache.get().getIndex();
+			if (value.contains("$") || index.size() == 0 || index.getAppId(value.trim()) != null) {
+				// names depending on the build environment can't be checked, nor can anything before the list is loaded
+				return FormValidation.ok();
+			}
+			List<String> closest = index.closest(value.trim(), 5);
+			return FormValidation.warning("No Veracode application with this name is known" + (closest.isEmpty() ? "." : ", did you mean " + closest + "?"));
+		}
+
+		/**
+		 * The application list was fetched with the global API user, so only those configuring a job, or
+		 * administrators outside of jobs, may see it.
+		 */
+		private static boolean mayListApplications(Item item) {
+			return item != null ? item.hasPermission(Item.CONFIGURE) : Jenkins.getInstance().hasPermission(Jenkins.ADMINISTER);
+		}
+
+		public FormValidation doCheckModuleRules(@QueryParameter String moduleRules) {
+			try {
+				ModuleSelector.compile(moduleRules);
+				return FormValidation.ok();
+			} catch (IllegalArgumentException e) {
+				return FormValidation.error(e.getMessage());
+			}
+		}
+
 		public FormValidation doCheckScanFrequency(@QueryParameter String scanFrequency) {
 			try {
 				Long.parseLong(scanFrequency);
@@ -535,11 +1100,26 @@ public class VeracodeNotifier extends Notifier {
 				return FormValidation.error("Not a valid value for prescan timeout. Please specify an integer.");
 			}
 		}
-	}
 
-	private static class FileGetter implements FilePath.FileCallable<File> {
-		public File invoke(File f, VirtualChannel channel) {
-			return f;
+		public FormValidation doCheckUploadBandwidth(@QueryParameter String uploadBandwidth) {
+			if (uploadBandwidth.trim().length() == 0) {
+				return FormValidation.ok();
+			}
+			try {
+				Long.parseLong(uploadBandwidth.trim());
+				return FormValidation.ok();
+			} catch (NumberFormatException e) {
+				return FormValidation.error("Not a valid value for upload bandwidth. Please specify an integer.");
+			}
+		}
+
+		public FormValidation doCheckBandwidthProfiles(@QueryParameter String bandwidthProfiles) {
+			try {
+				BandwidthProfile.parse(bandwidthProfiles);
+				return FormValidation.ok();
+			} catch (IllegalArgumentException e) {
+				return FormValidation.error(e.getMessage());
+			}
 		}
 	}
 }
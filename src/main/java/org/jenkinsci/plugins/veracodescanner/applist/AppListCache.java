@@ -0,0 +1,64 @@
+package org.jenkinsci.plugins.veracodescanner.applist;
+
+import java.io.StringReader;
+import java.util.Date;
+
+import javax.xml.bind.JAXBContext;
+
+import jenkins.model.Jenkins;
+
+import org.jenkinsci.plugins.veracodescanner.VeracodeNotifier;
+import org.jenkinsci.plugins.veracodescanner.credentials.CredentialPool;
+import org.jenkinsci.plugins.veracodescanner.model.Applist;
+import org.jenkinsci.plugins.veracodescanner.telemetry.Telemetry;
+
+import com.veracode.apiwrapper.wrappers.UploadAPIWrapper;
+
+/**
+ * The last known Veracode application list as an {@link AppNameIndex}, for form validation and autocompletion without
+ * calling the API on the request thread. Refreshed by {@link AppListRefresher} and whenever a build fetches the list.
+ */
+public class AppListCache {
+
+	private static final AppListCache INSTANCE = new AppListCache();
+
+	private volatile AppNameIndex index = AppNameIndex.EMPTY;
+	private volatile Date refreshed;
+
+	public static AppListCache get() {
+		return INSTANCE;
+	}
+
+	public AppNameIndex getIndex() {
+		Telemetry.get().cacheLookup("application list", refreshed != null);
+		return index;
+	}
+
+	public Date getRefreshed() {
+		return refreshed;
+	}
+
+	public AppNameIndex update(Applist appList) {
+		AppNameIndex updated = AppNameIndex.of(appList);
+		index = updated;
+		refreshed = new Date();
+		return updated;
+	}
+
+	void refresh() throws Exception {
+		VeracodeNotifier.DescriptorImpl descriptor = Jenkins.getInstance().getDescriptorByType(VeracodeNotifier.DescriptorImpl.class);
+		if (descriptor.getVeracodeUser() == null || descriptor.getVeracodeUser().trim().length() == 0) {
+			return;
+		}
+		CredentialPool.Account account = CredentialPool.get().getDefault();
+		UploadAPIWrapper veracodeUploadClient = account.borrowClient();
+		String appListXml;
+		try {
+			appListXml = veracodeUploadClient.getAppList();
+		} finally {
+			account.returnClient(veracodeUploadClient);
+		}
+		JAXBContext jaxbContext = JAXBContext.newInstance(Applist.class);
+		update((Applist) jaxbContext.createUnmarshaller().unmarshal(new StringReader(appListXml)));
+	}
+}
@@ -0,0 +1,42 @@
+package org.jenkinsci.plugins.veracodescanner.applist;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+
+/**
+ * Refreshes the {@link AppListCache} in the background.
+ */
+@Extension
+public class AppListRefresher extends AsyncPeriodicWork {
+
+	private static final long PERIOD = Long.getLong(AppListRefresher.class.getName() + ".period", 15 * MIN);
+
+	public AppListRefresher() {
+		super("Veracode application list refresh");
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return PERIOD;
+	}
+
+	@Override
+	public long getInitialDelay() {
+		return MIN;
+	}
+
+	@Override
+	protected void execute(TaskListener listener) throws IOException, InterruptedException {
+		try {
+			AppListCache.get().refresh();
+			listener.getLogger().println("Indexed " + AppListCache.get().getIndex().size() + " Veracode applications");
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			e.printStackTrace(listener.error("Failed to refresh the Veracode application list"));
+		}
+	}
+}
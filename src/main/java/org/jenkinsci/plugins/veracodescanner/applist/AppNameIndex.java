@@ -0,0 +1,138 @@
+package org.jenkinsci.plugins.veracodescanner.applist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import org.jenkinsci.plugins.veracodescanner.model.AppType;
+import org.jenkinsci.plugins.veracodescanner.model.Applist;
+
+/**
+ * Immutable, case-insensitive index of application names, kept as sorted arrays so that lookups are a binary search
+ * without allocating.
+ */
+public class AppNameIndex {
+
+	public static final AppNameIndex EMPTY = new AppNameIndex(new String[0], new String[0], new String[0]);
+
+	private final String[] keys;
+	private final String[] names;
+	private final String[] appIds;
+
+	private AppNameIndex(String[] keys, String[] names, String[] appIds) {
+		this.keys = keys;
+		this.names = names;
+		this.appIds = appIds;
+	}
+
+	public static AppNameIndex of(Applist appList) {
+		List<AppType> apps = new ArrayList<AppType>(appList.getApp());
+		Collections.sort(apps, new Comparator<AppType>() {
+			public int compare(AppType a, AppType b) {
+				return key(a.getAppName()).compareTo(key(b.getAppName()));
+			}
+		});
+		String[] keys = new String[apps.size()];
+		String[] names = new String[apps.size()];
+		String[] appIds = new String[apps.size()];
+		for (int i = 0; i < apps.size(); i++) {
+			names[i] = apps.get(i).getAppName();
+			keys[i] = key(names[i]);
+			appIds[i] = apps.get(i).getAppId().toString();
+		}
+		return new AppNameIndex(keys, names, appIds);
+	}
+
+	private static String key(String name) {
+		return name == null ? "" : name.toLowerCase(Locale.ENGLISH);
+	}
+
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * @return the id of the application with the given name ignoring case, or null
+	 */
+	public String getAppId(String name) {
+		int i = Arrays.binarySearch(keys, key(name));
+		return i >= 0 ? appIds[i] : null;
+	}
+
+	/**
+	 * @return up to <code>limit</code> application names starting with the given prefix ignoring case, in
+	 *         alphabetical order
+	 */
+	public List<String> startingWith(String prefix, int limit) {
+		String key = key(prefix);
+		int i = Arrays.binarySearch(keys, key);
+		if (i < 0) {
+			i = -i - 1;
+		}
+		List<String> matches = new ArrayList<String>();
+		for (; i < keys.length && matches.size() < limit && keys[i].startsWith(key); i++) {
+			matches.add(names[i]);
+		}
+		return matches;
+	}
+
+	/**
+	 * @return up to <code>limit</code> application names closest to the given one by edit distance, for suggesting
+	 *         corrections of a misspelled name
+	 */
+	public List<String> closest(String name, int limit) {
+		final String key = key(name);
+		int maxDistance = Math.max(3, key.length() / 3);
+		final int[] distances = new int[keys.length];
+		List<Integer> candidates = new ArrayList<Integer>();
+		for (int i = 0; i < keys.length; i++) {
+			distances[i] = keys[i].startsWith(key) || key.startsWith(keys[i]) ? Math.abs(keys[i].length() - key.length()) : distance(key, keys[i], maxDistance);
+			if (distances[i] <= maxDistance) {
+				candidates.add(i);
+			}
+		}
+		Collections.sort(candidates, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return distances[a] - distances[b];
+			}
+		});
+		List<String> closest = new ArrayList<String>();
+		for (int i = 0; i < candidates.size() && i < limit; i++) {
+			closest.add(names[candidates.get(i)]);
+		}
+		return closest;
+	}
+
+	/**
+	 * Levenshtein distance, giving up with <code>max + 1</code> once it can't be <code>max</code> or less.
+	 */
+	private static int distance(String a, String b, int max) {
+		if (Math.abs(a.length() - b.length()) > max) {
+			return max + 1;
+		}
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			int rowMin = current[0];
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+				rowMin = Math.min(rowMin, current[j]);
+			}
+			if (rowMin > max) {
+				return max + 1;
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[b.length()];
+	}
+}
@@ -0,0 +1,28 @@
+package org.jenkinsci.plugins.veracodescanner.credentials;
+
+import hudson.util.Secret;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * A Veracode API user in addition to the main one of the global configuration.
+ */
+public class ApiCredential {
+
+	private final String user;
+	private final Secret pass;
+
+	@DataBoundConstructor
+	public ApiCredential(String user, String pass) {
+		this.user = user;
+		this.pass = Secret.fromString(pass);
+	}
+
+	public String getUser() {
+		return user;
+	}
+
+	public Secret getPass() {
+		return pass;
+	}
+}
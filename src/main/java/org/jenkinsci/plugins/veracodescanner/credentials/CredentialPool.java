@@ -0,0 +1,297 @@
+package org.jenkinsci.plugins.veracodescanner.credentials;
+
+import hudson.XmlFile;
+import hudson.util.Secret;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.veracodescanner.ScannerHome;
+import org.jenkinsci.plugins.veracodescanner.exception.VeracodeScannerException;
+import org.jenkinsci.plugins.veracodescanner.telemetry.MeteredUploadAPIWrapper;
+
+import com.veracode.apiwrapper.wrappers.UploadAPIWrapper;
+
+/**
+ * Spreads submissions over several Veracode API users. An application is assigned to the least loaded account when it
+ * is first submitted and keeps using it afterwards, also after a restart. Every account reuses its own clients and
+ * limits its concurrent uploads and status requests on its own, so throughput grows with the number of accounts.
+ */
+public class CredentialPool {
+
+	private static final Logger LOGGER = Logger.getLogger(CredentialPool.class.getName());
+
+	private static final int UPLOADS_PER_ACCOUNT = Integer.getInteger(CredentialPool.class.getName() + ".uploadsPerAccount", 4);
+	private static final int REQUESTS_PER_ACCOUNT = Integer.getInteger(CredentialPool.class.getName() + ".requestsPerAccount", 4);
+
+	private static final CredentialPool INSTANCE = new CredentialPool();
+
+	private volatile List<Account> accounts = Collections.emptyList();
+	/** API user by application id */
+	private final ConcurrentMap<String, String> affinity = new ConcurrentHashMap<String, String>();
+	private boolean affinityLoaded;
+
+	public static CredentialPool get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @param credentials
+	 *            the main API user first, followed by the additional ones
+	 */
+	public synchronized void configure(List<ApiCredential> credentials) {
+		List<Account> configured = new ArrayList<Account>();
+		for (ApiCredential credential : credentials) {
+			if (credential.getUser() == null || credential.getUser().trim().length() == 0) {
+				continue;
+			}
+			Account account = find(credential.getUser());
+			if (account == null || !Secret.toString(account.pass).equals(Secret.toString(credential.getPass()))) {
+				account = new Account(credential.getUser(), credential.getPass());
+			}
+			configured.add(account);
+		}
+		// applications of removed accounts are assigned again on their next submission
+		accounts = Collections.unmodifiableList(configured);
+	}
+
+	public List<Account> getAccounts() {
+		return accounts;
+	}
+
+	/**
+	 * @return the main API user, used for requests that are not about a single application
+	 */
+	public Account getDefault() throws VeracodeScannerException {
+		List<Account> current = accounts;
+		if (current.isEmpty()) {
+			throw new VeracodeScannerException("No Veracode API user is configured, set one in the global configuration.");
+		}
+		return current.get(0);
+	}
+
+	/**
+	 * @return the account of the given user, or the main one if that user is no longer configured
+	 */
+	public Account getAccount(String user) throws VeracodeScannerException {
+		Account account = user == null ? null : find(user);
+		return account != null ? account : getDefault();
+	}
+
+	/**
+	 * @return the account the application was assigned to, or the main one if it was not submitted yet
+	 */
+	public Account getAssigned(String appId) throws VeracodeScannerException {
+		loadAffinity();
+		return getAccount(affinity.get(appId));
+	}
+
+	/**
+	 * @return the account the application is assigned to, assigning the least loaded one on its first submission
+	 */
+	public Account accountFor(String appId) throws VeracodeScannerException {
+		loadAffinity();
+		String user = affinity.get(appId);
+		Account account = user == null ? null : find(user);
+		if (account != null) {
+			return account;
+		}
+
+		List<Account> current = accounts;
+		if (current.isEmpty()) {
+			return getDefault();
+		}
+		// start at a position derived from the app id so that ties don't all go to the first account
+		int start = (appId.hashCode() & Integer.MAX_VALUE) % current.size();
+		Account leastLoaded = null;
+		for (int i = 0; i < current.size(); i++) {
+			Account candidate = current.get((start + i) % current.size());
+			if (leastLoaded == null || candidate.getLoad() < leastLoaded.getLoad()) {
+				leastLoaded = candidate;
+			}
+		}
+		synchronized (this) {
+			user = affinity.get(appId);
+			account = user == null ? null : find(user);
+			if (account != null) {
+				return account;
+			}
+			affinity.put(appId, leastLoaded.user);
+			try {
+				getAffinityFile().write(new HashMap<String, String>(affinity));
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to save the Veracode API users of applications", e);
+			}
+		}
+		return leastLoaded;
+	}
+
+	private synchronized void loadAffinity() {
+		if (affinityLoaded) {
+			return;
+		}
+		affinityLoaded = true;
+		XmlFile file = getAffinityFile();
+		if (!file.exists()) {
+			return;
+		}
+		try {
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) file.read()).entrySet()) {
+				affinity.put((String) entry.getKey(), (String) entry.getValue());
+			}
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to load the Veracode API users of applications", e);
+		}
+	}
+
+	private static XmlFile getAffinityFile() {
+		return ScannerHome.getFile("affinity.xml");
+	}
+
+	private Account find(String user) {
+		for (Account account : accounts) {
+			if (account.user.equals(user)) {
+				return account;
+			}
+		}
+		return null;
+	}
+
+	public static class Account {
+
+		private final String user;
+		private final Secret pass;
+		private final Queue<UploadAPIWrapper> clients = new ConcurrentLinkedQueue<UploadAPIWrapper>();
+		private final Semaphore uploads = new Semaphore(UPLOADS_PER_ACCOUNT, true);
+		private final Semaphore requests = new Semaphore(REQUESTS_PER_ACCOUNT, true);
+		private final AtomicInteger submissions = new AtomicInteger();
+
+		Account(String user, Secret pass) {
+			this.user = user;
+			this.pass = pass;
+		}
+
+		public String getUser() {
+			return user;
+		}
+
+		/**
+		 * @return a client of this account whose status requests are limited like its uploads
+		 */
+		public UploadAPIWrapper borrowClient() {
+			UploadAPIWrapper client = clients.poll();
+			if (client == null) {
+				client = new LimitedClient(requests);
+				client.setUpCredentials(user, Secret.toString(pass));
+			}
+			return client;
+		}
+
+		public void returnClient(UploadAPIWrapper client) {
+			clients.offer(client);
+		}
+
+		public void acquireUpload() throws InterruptedException {
+			uploads.acquire();
+		}
+
+		public void releaseUpload() {
+			uploads.release();
+		}
+
+		public void submissionStarted() {
+			submissions.incrementAndGet();
+		}
+
+		public void submissionFinished() {
+			submissions.decrementAndGet();
+		}
+
+		/**
+		 * @return the number of submissions in flight with this account
+		 */
+		public int getLoad() {
+			return submissions.get();
+		}
+
+		@Override
+		public String toString() {
+			return user;
+		}
+	}
+
+	/**
+	 * Client that polls the Veracode API only with a permit of its account, so that status polling of many builds
+	 * stays within the account's limit. Uploads are limited by {@link Account#acquireUpload()}.
+	 */
+	private static class LimitedClient extends MeteredUploadAPIWrapper {
+
+		private final Semaphore requests;
+
+		private LimitedClient(Semaphore requests) {
+			this.requests = requests;
+		}
+
+		@Override
+		public String getAppList() throws IOException {
+			acquire();
+			try {
+				return super.getAppList();
+			} finally {
+				requests.release();
+			}
+		}
+
+		@Override
+		public String getBuildInfo(String appId) throws IOException {
+			acquire();
+			try {
+				return super.getBuildInfo(appId);
+			} finally {
+				requests.release();
+			}
+		}
+
+		@Override
+		public String getBuildInfo(String appId, String buildId) throws IOException {
+			acquire();
+			try {
+				return super.getBuildInfo(appId, buildId);
+			} finally {
+				requests.release();
+			}
+		}
+
+		@Override
+		public String getPreScanResults(String appId) throws IOException {
+			acquire();
+			try {
+				return super.getPreScanResults(appId);
+			} finally {
+				requests.release();
+			}
+		}
+
+		private void acquire() throws InterruptedIOException {
+			try {
+				requests.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a Veracode API request permit");
+			}
+		}
+	}
+}
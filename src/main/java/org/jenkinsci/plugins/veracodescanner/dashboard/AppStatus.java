@@ -0,0 +1,117 @@
+package org.jenkinsci.plugins.veracodescanner.dashboard;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Last known Veracode status of one application referenced by Veracode jobs.
+ */
+public class AppStatus {
+
+	private final String appName;
+	private final String appId;
+	// job full name to job URL
+	private final Map<String, String> jobs;
+	private final int scanFrequency;
+	private String status;
+	private String policyComplianceStatus;
+	private Long buildId;
+	private boolean scanOverdue;
+	private Date lastPublished;
+	private Date nextDue;
+	private String error;
+
+	public AppStatus(String appName, String appId, Map<String, String> jobs, int scanFrequency) {
+		this.appName = appName;
+		this.appId = appId;
+		this.jobs = jobs;
+		this.scanFrequency = scanFrequency;
+	}
+
+	/**
+	 * @return a copy of this status listing only the given jobs
+	 */
+	AppStatus withJobs(Map<String, String> jobs) {
+		AppStatus copy = new AppStatus(appName, appId, jobs, scanFrequency);
+		copy.status = status;
+		copy.policyComplianceStatus = policyComplianceStatus;
+		copy.buildId = buildId;
+		copy.scanOverdue = scanOverdue;
+		copy.lastPublished = lastPublished;
+		copy.nextDue = nextDue;
+		copy.error = error;
+		return copy;
+	}
+
+	public String getAppName() {
+		return appName;
+	}
+
+	public String getAppId() {
+		return appId;
+	}
+
+	public Map<String, String> getJobs() {
+		return jobs;
+	}
+
+	public int getScanFrequency() {
+		return scanFrequency;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	void setStatus(String status) {
+		this.status = status;
+	}
+
+	public String getPolicyComplianceStatus() {
+		return policyComplianceStatus;
+	}
+
+	void setPolicyComplianceStatus(String policyComplianceStatus) {
+		this.policyComplianceStatus = policyComplianceStatus;
+	}
+
+	public Long getBuildId() {
+		return buildId;
+	}
+
+	void setBuildId(Long buildId) {
+		this.buildId = buildId;
+	}
+
+	public boolean isScanOverdue() {
+		return scanOverdue;
+	}
+
+	void setScanOverdue(boolean scanOverdue) {
+		this.scanOverdue = scanOverdue;
+	}
+
+	public Date getLastPublished() {
+		return lastPublished;
+	}
+
+	void setLastPublished(Date lastPublished) {
+		this.lastPublished = lastPublished;
+	}
+
+	public Date getNextDue() {
+		return nextDue;
+	}
+
+	void setNextDue(Date nextDue) {
+		this.nextDue = nextDue;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	void setError(String error) {
+		this.error = error;
+	}
+}
@@ -0,0 +1,202 @@
+package org.jenkinsci.plugins.veracodescanner.dashboard;
+
+import hudson.model.AbstractProject;
+import hudson.security.ACL;
+import hudson.util.DaemonThreadFactory;
+
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.bind.JAXBContext;
+
+import jenkins.model.Jenkins;
+
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import org.jenkinsci.plugins.veracodescanner.VeracodeNotifier;
+import org.jenkinsci.plugins.veracodescanner.credentials.CredentialPool;
+import org.jenkinsci.plugins.veracodescanner.applist.AppListCache;
+import org.jenkinsci.plugins.veracodescanner.estimate.CompletionEstimator;
+import org.jenkinsci.plugins.veracodescanner.model.AppType;
+import org.jenkinsci.plugins.veracodescanner.model.ApplicationTarget;
+import org.jenkinsci.plugins.veracodescanner.model.Applist;
+import org.jenkinsci.plugins.veracodescanner.model.lean.LeanBuildinfo;
+import org.jenkinsci.plugins.veracodescanner.model.lean.LeanModelReader;
+import org.jenkinsci.plugins.veracodescanner.schedule.ScanScheduler;
+
+import com.veracode.apiwrapper.wrappers.UploadAPIWrapper;
+
+/**
+ * Snapshot of the Veracode status of every application referenced by a {@link VeracodeNotifier}. Only
+ * {@link StatusCacheRefresher} talks to the Veracode API; readers always get the last snapshot.
+ */
+public class StatusCache {
+
+	private static final int PARALLELISM = Integer.getInteger(StatusCache.class.getName() + ".parallelism", 4);
+
+	private static final StatusCache INSTANCE = new StatusCache();
+
+	private volatile List<AppStatus> snapshot = Collections.emptyList();
+	private volatile Date refreshed;
+
+	public static StatusCache get() {
+		return INSTANCE;
+	}
+
+	public List<AppStatus> getSnapshot() {
+		return snapshot;
+	}
+
+	public Date getRefreshed() {
+		return refreshed;
+	}
+
+	void refresh(PrintStream log) throws Exception {
+		Map<String, Map<String, String>> jobsByApp = new TreeMap<String, Map<String, String>>(String.CASE_INSENSITIVE_ORDER);
+		Map<String, Integer> frequencyByApp = new TreeMap<String, Integer>(String.CASE_INSENSITIVE_ORDER);
+		// runs in the background, where only the system may see all jobs; readers are filtered by the dashboard
+		SecurityContext context = ACL.impersonate(ACL.SYSTEM);
+		try {
+			for (AbstractProject<?, ?> project : Jenkins.getInstance().getAllItems(AbstractProject.class)) {
+				VeracodeNotifier notifier = project.getPublishersList().get(VeracodeNotifier.class);
+				if (notifier == null) {
+					continue;
+				}
+				int frequency = parseFrequency(notifier.getScanFrequency());
+				for (ApplicationTarget target : notifier.getTargets()) {
+					if (target.getApplicationName() == null || target.getApplicationName().trim().length() == 0) {
+						continue;
+					}
+					String appName = target.getApplicationName().trim();
+					Map<String, String> jobs = jobsByApp.get(appName);
+					if (jobs == null) {
+						jobs = new TreeMap<String, String>();
+						jobsByApp.put(appName, jobs);
+					}
+					jobs.put(project.getFullName(), project.getUrl());
+
+					Integer current = frequencyByApp.get(appName);
+					if (current == null || frequency < current) {
+						frequencyByApp.put(appName, frequency);
+					}
+				}
+			}
+		} finally {
+			SecurityContextHolder.setContext(context);
+		}
+		if (jobsByApp.isEmpty()) {
+			snapshot = Collections.emptyList();
+			refreshed = new Date();
+			return;
+		}
+
+		final VeracodeNotifier.DescriptorImpl descriptor = Jenkins.getInstance().getDescriptorByType(VeracodeNotifier.DescriptorImpl.class);
+		CredentialPool.Account account = CredentialPool.get().getDefault();
+		UploadAPIWrapper veracodeUploadClient = account.borrowClient();
+		String appListXml;
+		try {
+			appListXml = veracodeUploadClient.getAppList();
+		} finally {
+			account.returnClient(veracodeUploadClient);
+		}
+		JAXBContext jaxbContext = JAXBContext.newInstance(Applist.class);
+		Applist appList = (Applist) jaxbContext.createUnmarshaller().unmarshal(new StringReader(appListXml));
+		AppListCache.get().update(appList);
+		Map<String, String> appIds = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
+		for (AppType app : appList.getApp()) {
+			appIds.put(app.getAppName(), app.getAppId().toString());
+		}
+
+		List<Callable<AppStatus>> tasks = new ArrayList<Callable<AppStatus>>();
+		for (Map.Entry<String, Map<String, String>> entry : jobsByApp.entrySet()) {
+			final int frequency = frequencyByApp.get(entry.getKey());
+			final AppStatus status = new AppStatus(entry.getKey(), appIds.get(entry.getKey()), entry.getValue(), frequency);
+			if (status.getAppId() == null) {
+				status.setError(entry.getKey().contains("$") ? "Application name depends on the build environment" : "Application not found");
+				tasks.add(new Callable<AppStatus>() {
+					public AppStatus call() {
+						return status;
+					}
+				});
+				continue;
+			}
+			tasks.add(new Callable<AppStatus>() {
+				public AppStatus call() {
+					fill(status, frequency, descriptor);
+					return status;
+				}
+			});
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM, new DaemonThreadFactory());
+		try {
+			List<AppStatus> statuses = new ArrayList<AppStatus>();
+			for (Future<AppStatus> future : executor.invokeAll(tasks)) {
+				statuses.add(future.get());
+			}
+			snapshot = Collections.unmodifiableList(statuses);
+			refreshed = new Date();
+			log.println("Refreshed Veracode status of " + statuses.size() + " applications");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void fill(AppStatus status, int frequency, VeracodeNotifier.DescriptorImpl descriptor) {
+		try {
+			CredentialPool.Account account = CredentialPool.get().getAssigned(status.getAppId());
+			UploadAPIWrapper veracodeUploadClient = account.borrowClient();
+			LeanBuildinfo build;
+			try {
+				build = LeanModelReader.readBuildinfo(veracodeUploadClient.getBuildInfo(status.getAppId()));
+			} finally {
+				account.returnClient(veracodeUploadClient);
+			}
+			if (!build.hasBuild()) {
+				status.setError("No Veracode build found");
+				return;
+			}
+			status.setBuildId(build.getBuildId() != LeanBuildinfo.NONE ? build.getBuildId() : null);
+			status.setScanOverdue(build.isScanOverdue());
+			if (build.getPolicyComplianceStatus() != null) {
+				status.setPolicyComplianceStatus(build.getPolicyComplianceStatus().value());
+			}
+			if (build.getStatus() != null) {
+				status.setStatus(build.getStatus().value());
+			}
+			if (build.getPublishedDate() != LeanBuildinfo.NONE) {
+				long published = build.getPublishedDate();
+				status.setLastPublished(new Date(published));
+				if (Boolean.TRUE.equals(descriptor.getStaggerScans())) {
+					status.setNextDue(new Date(ScanScheduler.getNextScan(status.getAppId(), frequency, published)));
+				} else {
+					status.setNextDue(new Date(published + frequency * 24l * 60l * 60l * 1000l));
+				}
+				if (build.isResultsReady()) {
+					CompletionEstimator.get().recordScanCompletion(status.getAppId(), build.getBuildId(), published);
+				}
+			}
+		} catch (Exception e) {
+			status.setError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+		}
+	}
+
+	private static int parseFrequency(String scanFrequency) {
+		try {
+			return Integer.parseInt(scanFrequency);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package org.jenkinsci.plugins.veracodescanner.dashboard;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+
+/**
+ * Refreshes the {@link StatusCache} in the background.
+ */
+@Extension
+public class StatusCacheRefresher extends AsyncPeriodicWork {
+
+	private static final long PERIOD = Long.getLong(StatusCacheRefresher.class.getName() + ".period", 15 * MIN);
+
+	public StatusCacheRefresher() {
+		super("Veracode status refresh");
+	}
+
+	@Override
+	public long getRecurrencePeriod() {
+		return PERIOD;
+	}
+
+	@Override
+	public long getInitialDelay() {
+		return MIN;
+	}
+
+	@Override
+	protected void execute(TaskListener listener) throws IOException, InterruptedException {
+		try {
+			StatusCache.get().refresh(listener.getLogger());
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			e.printStackTrace(listener.error("Failed to refresh Veracode status"));
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package org.jenkinsci.plugins.veracodescanner.dashboard;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.RootAction;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jenkins.model.Jenkins;
+
+import org.jenkinsci.plugins.veracodescanner.schedule.ScanScheduler;
+import org.jenkinsci.plugins.veracodescanner.telemetry.Telemetry;
+
+/**
+ * Page listing the cached Veracode status of all applications scanned from this controller.
+ */
+@Extension
+public class VeracodeDashboard implements RootAction {
+
+	public String getIconFileName() {
+		return Jenkins.getInstance().hasPermission(Jenkins.READ) ? "clipboard.png" : null;
+	}
+
+	public String getDisplayName() {
+		return "Veracode Applications";
+	}
+
+	public String getUrlName() {
+		return Jenkins.getInstance().hasPermission(Jenkins.READ) ? "veracode" : null;
+	}
+
+	/**
+	 * @return the applications of the jobs the current user may see, listing only those jobs
+	 */
+	public List<AppStatus> getApplications() {
+		List<AppStatus> visible = new ArrayList<AppStatus>();
+		for (AppStatus app : StatusCache.get().getSnapshot()) {
+			Map<String, String> jobs = new TreeMap<String, String>();
+			for (Map.Entry<String, String> job : app.getJobs().entrySet()) {
+				Item item = Jenkins.getInstance().getItemByFullName(job.getKey());
+				if (item != null && item.hasPermission(Item.READ)) {
+					jobs.put(job.getKey(), job.getValue());
+				}
+			}
+			if (!jobs.isEmpty()) {
+				visible.add(jobs.size() == app.getJobs().size() ? app : app.withJobs(jobs));
+			}
+		}
+		return visible;
+	}
+
+	public Date getRefreshed() {
+		return StatusCache.get().getRefreshed();
+	}
+
+	/**
+	 * @return number of scans expected on each of the next two weeks' days, computed from the snapshot
+	 */
+	public List<ScanScheduler.DailyLoad> getProjectedLoad() {
+		List<String> appIds = new ArrayList<String>();
+		List<Integer> frequencies = new ArrayList<Integer>();
+		List<Long> lastScans = new ArrayList<Long>();
+		for (AppStatus app : getApplications()) {
+			if (app.getAppId() == null) {
+				continue;
+			}
+			appIds.add(app.getAppId());
+			frequencies.add(app.getScanFrequency());
+			lastScans.add(app.getLastPublished() != null ? app.getLastPublished().getTime() : 0l);
+		}
+		return ScanScheduler.projectDailyLoad(appIds, frequencies, lastScans, System.currentTimeMillis(), 14);
+	}
+
+	public Telemetry getTelemetry() {
+		return Telemetry.get();
+	}
+}
@@ -0,0 +1,179 @@
+package org.jenkinsci.plugins.veracodescanner.estimate;
+
+import hudson.XmlFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.veracodescanner.ScannerHome;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.AnalysisUnitType;
+
+/**
+ * Estimates when a prescan or scan will finish, so status checks can be scheduled just before the expected finish
+ * instead of at a fixed rate. Prescans are estimated from the durations of previous prescans of the same application,
+ * scans from the <code>estimated_delivery_date</code> and <code>estimated_scan_hours</code> reported by Veracode.
+ * Every prediction is kept with its actual completion time so the estimates can be checked.
+ */
+public class CompletionEstimator {
+
+	private static final Logger LOGGER = Logger.getLogger(CompletionEstimator.class.getName());
+
+	private static final int HISTORY_SIZE = 10;
+	private static final int PREDICTION_SIZE = 20;
+
+	/** Regular interval between status checks once the predicted time has passed or when there is no prediction. */
+	public static final long CHECK_INTERVAL = 60000l;
+
+	private static CompletionEstimator instance;
+
+	private Map<String, List<Long>> prescanDurations = new HashMap<String, List<Long>>();
+	private Map<String, List<Prediction>> predictions = new HashMap<String, List<Prediction>>();
+
+	public static synchronized CompletionEstimator get() {
+		if (instance == null) {
+			instance = load();
+		}
+		return instance;
+	}
+
+	/**
+	 * @return the expected prescan duration for the application, or -1 if it has never been prescanned here
+	 */
+	public synchronized long estimatePrescan(String appId) {
+		List<Long> durations = prescanDurations.get(appId);
+		if (durations == null || durations.isEmpty()) {
+			return -1;
+		}
+		List<Long> sorted = new ArrayList<Long>(durations);
+		Collections.sort(sorted);
+		return sorted.get(sorted.size() / 2);
+	}
+
+	/**
+	 * @return when Veracode expects the analysis unit to be published, or -1 if it did not say
+	 */
+	public static long estimateScanCompletion(AnalysisUnitType analysisUnit, long submittedAt) {
+		if (analysisUnit.getEstimatedDeliveryDate() != null) {
+			return analysisUnit.getEstimatedDeliveryDate().toGregorianCalendar().getTimeInMillis();
+		}
+		if (analysisUnit.getEstimatedScanHours() != null) {
+			return submittedAt + analysisUnit.getEstimatedScanHours().longValue() * 60l * 60l * 1000l;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the time of the first status check for work started at <code>startedAt</code> that is expected to
+	 *         finish at <code>predictedAt</code>
+	 */
+	public static long firstCheck(long startedAt, long predictedAt) {
+		if (predictedAt <= startedAt) {
+			return startedAt;
+		}
+		long lead = Math.max(CHECK_INTERVAL, (predictedAt - startedAt) / 10);
+		return Math.max(startedAt, predictedAt - lead);
+	}
+
+	public synchronized void recordPrescan(String appId, long buildId, long startedAt, long predictedAt, long finishedAt) {
+		List<Long> durations = prescanDurations.get(appId);
+		if (durations == null) {
+			durations = new ArrayList<Long>();
+			prescanDurations.put(appId, durations);
+		}
+		durations.add(finishedAt - startedAt);
+		trim(durations, HISTORY_SIZE);
+
+		if (predictedAt > 0) {
+			Prediction prediction = new Prediction(Prediction.Kind.PRESCAN, buildId, startedAt, predictedAt);
+			prediction.setActualAt(finishedAt);
+			add(appId, prediction);
+		}
+		save();
+	}
+
+	public synchronized void recordScanPrediction(String appId, long buildId, long startedAt, long predictedAt) {
+		add(appId, new Prediction(Prediction.Kind.SCAN, buildId, startedAt, predictedAt));
+		save();
+	}
+
+	public synchronized void recordScanCompletion(String appId, long buildId, long publishedAt) {
+		List<Prediction> appPredictions = predictions.get(appId);
+		if (appPredictions == null) {
+			return;
+		}
+		for (Prediction prediction : appPredictions) {
+			if (prediction.getKind() == Prediction.Kind.SCAN && prediction.getBuildId() == buildId && !prediction.isCompleted()) {
+				prediction.setActualAt(publishedAt);
+				LOGGER.info("Veracode build " + buildId + " of app " + appId + " was published " + prediction.getErrorMillis() / 60000
+						+ " minutes after the predicted time");
+				save();
+			}
+		}
+	}
+
+	/**
+	 * @return the predicted completion of the scan of the given Veracode build, or -1 if there is none
+	 */
+	public synchronized long getPredictedCompletion(String appId, long buildId) {
+		List<Prediction> appPredictions = predictions.get(appId);
+		if (appPredictions != null) {
+			for (Prediction prediction : appPredictions) {
+				if (prediction.getKind() == Prediction.Kind.SCAN && prediction.getBuildId() == buildId) {
+					return prediction.getPredictedAt();
+				}
+			}
+		}
+		return -1;
+	}
+
+	public synchronized List<Prediction> getPredictions(String appId) {
+		List<Prediction> appPredictions = predictions.get(appId);
+		return appPredictions == null ? Collections.<Prediction> emptyList() : new ArrayList<Prediction>(appPredictions);
+	}
+
+	private void add(String appId, Prediction prediction) {
+		List<Prediction> appPredictions = predictions.get(appId);
+		if (appPredictions == null) {
+			appPredictions = new ArrayList<Prediction>();
+			predictions.put(appId, appPredictions);
+		}
+		appPredictions.add(prediction);
+		trim(appPredictions, PREDICTION_SIZE);
+	}
+
+	private static void trim(List<?> list, int size) {
+		while (list.size() > size) {
+			list.remove(0);
+		}
+	}
+
+	private void save() {
+		try {
+			getFile().write(this);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to save Veracode completion estimates", e);
+		}
+	}
+
+	private static CompletionEstimator load() {
+		XmlFile file = getFile();
+		if (file.exists()) {
+			try {
+				return (CompletionEstimator) file.read();
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to load Veracode completion estimates", e);
+			}
+		}
+		return new CompletionEstimator();
+	}
+
+	private static XmlFile getFile() {
+		return ScannerHome.getFile("estimates.xml");
+	}
+}
@@ -0,0 +1,59 @@
+package org.jenkinsci.plugins.veracodescanner.estimate;
+
+/**
+ * A predicted completion time kept next to the actual one once it is known.
+ */
+public class Prediction {
+
+	public enum Kind {
+		PRESCAN, SCAN
+	}
+
+	private final Kind kind;
+	private final long buildId;
+	private final long startedAt;
+	private final long predictedAt;
+	private long actualAt;
+
+	public Prediction(Kind kind, long buildId, long startedAt, long predictedAt) {
+		this.kind = kind;
+		this.buildId = buildId;
+		this.startedAt = startedAt;
+		this.predictedAt = predictedAt;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public long getBuildId() {
+		return buildId;
+	}
+
+	public long getStartedAt() {
+		return startedAt;
+	}
+
+	public long getPredictedAt() {
+		return predictedAt;
+	}
+
+	public long getActualAt() {
+		return actualAt;
+	}
+
+	void setActualAt(long actualAt) {
+		this.actualAt = actualAt;
+	}
+
+	public boolean isCompleted() {
+		return actualAt > 0;
+	}
+
+	/**
+	 * @return how much later than predicted the work finished, negative when it finished early
+	 */
+	public long getErrorMillis() {
+		return actualAt - predictedAt;
+	}
+}
@@ -0,0 +1,175 @@
+package org.jenkinsci.plugins.veracodescanner.fingerprint;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import hudson.util.DaemonThreadFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jenkinsci.plugins.veracodescanner.telemetry.Telemetry;
+
+/**
+ * Computes SHA-256 digests of files in parallel where they are. The digests address staged copies and detect duplicate
+ * submissions and changed modules, so they have to be collision resistant. Each JVM, i.e. the controller and every
+ * agent, remembers the digests of the files it hashed by path, size and modification time, so that artifacts that did
+ * not change since the last build are not read again.
+ */
+public class Fingerprinter {
+
+	private static final int THREADS = Integer.getInteger(Fingerprinter.class.getName() + ".threads", Runtime.getRuntime().availableProcessors());
+	private static final int CACHE_SIZE = Integer.getInteger(Fingerprinter.class.getName() + ".cacheSize", 10000);
+	private static final int BUFFER_SIZE = 1024 * 1024;
+
+	private static final Fingerprinter INSTANCE = new Fingerprinter();
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(THREADS, new DaemonThreadFactory());
+	private final Map<String, CacheEntry> cache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	public static Fingerprinter get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Fingerprints the files below the base directory matching the includes, or the base itself if it is a file, on the
+	 * machine the files are on.
+	 */
+	public static Fingerprints fingerprint(FilePath base, String includes) throws IOException, InterruptedException {
+		return base.act(new FingerprintCallable(includes));
+	}
+
+	public Fingerprints fingerprint(List<File> files) throws IOException, InterruptedException {
+		long start = System.currentTimeMillis();
+		Fingerprints fingerprints = new Fingerprints();
+		List<Future<Long>> hashed = new ArrayList<Future<Long>>();
+		final String[] digests = new String[files.size()];
+		for (int i = 0; i < files.size(); i++) {
+			final int index = i;
+			final File file = files.get(i);
+			hashed.add(executor.submit(new Callable<Long>() {
+				public Long call() throws IOException {
+					String key = file.getAbsolutePath();
+					long size = file.length();
+					long modified = file.lastModified();
+					synchronized (cache) {
+						CacheEntry cached = cache.get(key);
+						if (cached != null && cached.size == size && cached.modified == modified) {
+							digests[index] = cached.digest;
+							Telemetry.get().cacheLookup("fingerprints", true);
+							return -1l;
+						}
+					}
+					Telemetry.get().cacheLookup("fingerprints", false);
+					digests[index] = hash(file);
+					synchronized (cache) {
+						cache.put(key, new CacheEntry(size, modified, digests[index]));
+					}
+					return size;
+				}
+			}));
+		}
+		try {
+			for (int i = 0; i < files.size(); i++) {
+				long bytes = hashed.get(i).get();
+				fingerprints.add(files.get(i).getAbsolutePath(), digests[i], bytes);
+			}
+		} catch (ExecutionException e) {
+			for (Future<Long> future : hashed) {
+				future.cancel(true);
+			}
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Unable to fingerprint artifacts: " + e.getCause(), e.getCause());
+		}
+		fingerprints.setMillis(System.currentTimeMillis() - start);
+		return fingerprints;
+	}
+
+	/**
+	 * Reads the file through a plain buffer; mapped buffers would keep the file locked on Windows until they are
+	 * garbage collected.
+	 *
+	 * @return the SHA-256 digest as lower case hex
+	 */
+	static String hash(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		} finally {
+			in.close();
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	private static class CacheEntry {
+
+		private final long size;
+		private final long modified;
+		private final String digest;
+
+		private CacheEntry(long size, long modified, String digest) {
+			this.size = size;
+			this.modified = modified;
+			this.digest = digest;
+		}
+	}
+
+	private static class FingerprintCallable implements FilePath.FileCallable<Fingerprints> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String includes;
+
+		private FingerprintCallable(String includes) {
+			this.includes = includes;
+		}
+
+		public Fingerprints invoke(File base, VirtualChannel channel) throws IOException, InterruptedException {
+			List<File> files = new ArrayList<File>();
+			if (includes == null) {
+				files.add(base);
+			} else {
+				for (FilePath file : new FilePath(base).list(includes)) {
+					files.add(new File(file.getRemote()));
+				}
+			}
+			return get().fingerprint(files);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package org.jenkinsci.plugins.veracodescanner.fingerprint;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Digests of a set of files by path, with figures on how long computing them took.
+ */
+public class Fingerprints implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Map<String, String> digests = new LinkedHashMap<String, String>();
+	private long hashedBytes;
+	private int hashedFiles;
+	private long millis;
+
+	void add(String path, String digest, long hashed) {
+		digests.put(path, digest);
+		if (hashed >= 0) {
+			hashedBytes += hashed;
+			hashedFiles++;
+		}
+	}
+
+	void setMillis(long millis) {
+		this.millis = millis;
+	}
+
+	/**
+	 * @param path
+	 *            the absolute path of the file as returned by {@link hudson.FilePath#getRemote()}
+	 */
+	public String getDigest(String path) {
+		return digests.get(path);
+	}
+
+	public Map<String, String> getDigests() {
+		return digests;
+	}
+
+	public String getThroughput() {
+		long megabytes = hashedBytes / (1024 * 1024);
+		return "Fingerprinted " + digests.size() + " file(s) in " + millis + " ms, hashed " + hashedFiles + " file(s) of " + megabytes + " MB"
+				+ (millis > 0 && hashedBytes > 0 ? " at " + hashedBytes * 1000 / millis / (1024 * 1024) + " MB/s" : "") + ", "
+				+ (digests.size() - hashedFiles) + " unchanged since their last fingerprint.";
+	}
+}
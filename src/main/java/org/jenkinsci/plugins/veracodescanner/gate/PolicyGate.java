@@ -0,0 +1,54 @@
+package org.jenkinsci.plugins.veracodescanner.gate;
+
+import hudson.model.Result;
+import hudson.model.TaskListener;
+
+import org.jenkinsci.plugins.veracodescanner.exception.VeracodeScannerException;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Passes or fails a build on the policy compliance and rules status of a Veracode build.
+ */
+public class PolicyGate {
+
+	private final int timeoutHours;
+	private final boolean allowConditionalPass;
+
+	@DataBoundConstructor
+	public PolicyGate(int timeoutHours, boolean allowConditionalPass) {
+		this.timeoutHours = timeoutHours;
+		this.allowConditionalPass = allowConditionalPass;
+	}
+
+	public int getTimeoutHours() {
+		return timeoutHours;
+	}
+
+	public boolean isAllowConditionalPass() {
+		return allowConditionalPass;
+	}
+
+	/**
+	 * Blocks until the results are known or the timeout passed, so the calling build holds its executor meanwhile. Jobs
+	 * started by a {@link VeracodeResultsTrigger} find the results ready.
+	 */
+	public Result evaluate(String appId, long buildId, TaskListener listener) throws InterruptedException, VeracodeScannerException {
+		ScanVerdict verdict = ResultPoller.get().getCached(buildId);
+		if (verdict == null) {
+			listener.getLogger().println("Waiting up to " + timeoutHours + " hours for the policy results of Veracode build " + buildId
+					+ ", holding this executor. Gate in a job started by \"Build when Veracode results are ready\" to free it.");
+			verdict = ResultPoller.get().await(appId, buildId, timeoutHours * 60l * 60l * 1000l);
+		}
+		if (verdict == null) {
+			listener.getLogger().println("Policy results of Veracode build " + buildId + " were not ready within " + timeoutHours + " hours.");
+			return Result.UNSTABLE;
+		}
+
+		listener.getLogger().println("Veracode build " + buildId + ": " + verdict);
+		if (verdict.isPassing(allowConditionalPass)) {
+			return Result.SUCCESS;
+		}
+		listener.getLogger().println("Veracode build " + buildId + " does not pass the policy.");
+		return Result.FAILURE;
+	}
+}
@@ -0,0 +1,273 @@
+package org.jenkinsci.plugins.veracodescanner.gate;
+
+import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.util.DaemonThreadFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.veracodescanner.ScannerHome;
+import org.jenkinsci.plugins.veracodescanner.credentials.CredentialPool;
+import org.jenkinsci.plugins.veracodescanner.estimate.CompletionEstimator;
+import org.jenkinsci.plugins.veracodescanner.exception.VeracodeScannerException;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.PolicyComplianceType;
+import org.jenkinsci.plugins.veracodescanner.model.lean.LeanBuildinfo;
+import org.jenkinsci.plugins.veracodescanner.model.lean.LeanModelReader;
+import org.jenkinsci.plugins.veracodescanner.telemetry.Telemetry;
+
+import com.veracode.apiwrapper.wrappers.UploadAPIWrapper;
+
+/**
+ * Waits for the policy results of Veracode builds. All waiters of the same Veracode build share one watch that is
+ * checked on a small shared scheduler, so the number of API calls does not grow with the number of waiting builds.
+ * Final verdicts are cached by Veracode build id. Watches for {@link VeracodeResultsTrigger}s are persisted, so that
+ * they survive a restart of the controller.
+ */
+public class ResultPoller {
+
+	private static final Logger LOGGER = Logger.getLogger(ResultPoller.class.getName());
+
+	private static final long CHECK_INTERVAL = Long.getLong(ResultPoller.class.getName() + ".interval", 5 * 60000l);
+	private static final int MAX_FAILURES = 5;
+	private static final long MAX_WATCH_AGE = 14 * 24 * 60 * 60000l;
+	private static final int CACHE_SIZE = 1000;
+
+	private static final ResultPoller INSTANCE = new ResultPoller();
+
+	private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, new DaemonThreadFactory());
+	private final Map<Long, Watch> watches = new HashMap<Long, Watch>();
+	private final Map<Long, ScanVerdict> verdicts = new LinkedHashMap<Long, ScanVerdict>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, ScanVerdict> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	public static ResultPoller get() {
+		return INSTANCE;
+	}
+
+	public synchronized ScanVerdict getCached(long buildId) {
+		return verdicts.get(buildId);
+	}
+
+	/**
+	 * Keeps checking the Veracode build without anybody waiting for it, so that {@link VeracodeResultsTrigger}s of
+	 * the application can start their jobs once the verdict is known.
+	 */
+	public synchronized void watch(String appId, String appName, long buildId) {
+		if (verdicts.containsKey(buildId)) {
+			return;
+		}
+		Watch watch = getWatch(appId, buildId);
+		watch.appName = appName;
+		save();
+	}
+
+	private Watch getWatch(String appId, long buildId) {
+		Watch watch = watches.get(buildId);
+		if (watch == null) {
+			watch = new Watch(appId, buildId);
+			watches.put(buildId, watch);
+			long firstCheck = CompletionEstimator.firstCheck(System.currentTimeMillis(), CompletionEstimator.get().getPredictedCompletion(appId, buildId));
+			watch.next = scheduler.schedule(watch, firstCheck - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}
+		return watch;
+	}
+
+	/**
+	 * @return the verdict, or null if it was not available within the timeout
+	 */
+	public ScanVerdict await(String appId, long buildId, long timeoutMillis) throws InterruptedException, VeracodeScannerException {
+		Watch watch;
+		synchronized (this) {
+			ScanVerdict cached = verdicts.get(buildId);
+			Telemetry.get().cacheLookup("verdicts", cached != null);
+			if (cached != null) {
+				return cached;
+			}
+			watch = getWatch(appId, buildId);
+			watch.waiters++;
+		}
+
+		try {
+			if (!watch.done.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				return null;
+			}
+			if (watch.error != null) {
+				throw new VeracodeScannerException("Unable to get results of Veracode build " + buildId, watch.error);
+			}
+			return watch.verdict;
+		} finally {
+			synchronized (this) {
+				watch.waiters--;
+				if (watch.waiters == 0 && watch.appName == null && watch.done.getCount() > 0) {
+					// nobody is interested anymore
+					watch.next.cancel(false);
+					watches.remove(buildId);
+				}
+			}
+		}
+	}
+
+	private synchronized void complete(Watch watch, ScanVerdict verdict, Exception error) {
+		watch.verdict = verdict;
+		watch.error = error;
+		if (verdict != null) {
+			verdicts.put(watch.buildId, verdict);
+		}
+		watches.remove(watch.buildId);
+		watch.done.countDown();
+		if (watch.appName != null) {
+			save();
+		}
+	}
+
+	private synchronized void reschedule(Watch watch) {
+		if (watches.get(watch.buildId) != watch) {
+			return;
+		}
+		if (watch.waiters > 0 || (watch.appName != null && System.currentTimeMillis() - watch.created < MAX_WATCH_AGE)) {
+			watch.next = scheduler.schedule(watch, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+		} else {
+			watches.remove(watch.buildId);
+			if (watch.appName != null) {
+				save();
+			}
+		}
+	}
+
+	/**
+	 * Persists the watches that start triggered jobs; watches of waiting builds end with their builds anyway.
+	 */
+	private synchronized void save() {
+		List<PersistedWatch> persisted = new ArrayList<PersistedWatch>();
+		for (Watch watch : watches.values()) {
+			if (watch.appName != null) {
+				persisted.add(new PersistedWatch(watch.appId, watch.appName, watch.buildId, watch.created));
+			}
+		}
+		try {
+			getFile().write(persisted);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to save Veracode result watches", e);
+		}
+	}
+
+	private static XmlFile getFile() {
+		return ScannerHome.getFile("watches.xml");
+	}
+
+	@Initializer(after = InitMilestone.JOB_LOADED)
+	public static void resumeWatches() {
+		XmlFile file = getFile();
+		if (!file.exists()) {
+			return;
+		}
+		List<?> persisted;
+		try {
+			persisted = (List<?>) file.read();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to load Veracode result watches", e);
+			return;
+		}
+		ResultPoller poller = get();
+		synchronized (poller) {
+			for (Object o : persisted) {
+				PersistedWatch persistedWatch = (PersistedWatch) o;
+				Watch watch = poller.getWatch(persistedWatch.appId, persistedWatch.buildId);
+				watch.appName = persistedWatch.appName;
+				watch.created = persistedWatch.created;
+			}
+		}
+		if (!persisted.isEmpty()) {
+			LOGGER.info("Resumed " + persisted.size() + " Veracode result watch(es)");
+		}
+	}
+
+	private ScanVerdict check(String appId, long buildId) throws Exception {
+		CredentialPool.Account account = CredentialPool.get().getAssigned(appId);
+		UploadAPIWrapper veracodeUploadClient = account.borrowClient();
+		LeanBuildinfo build;
+		try {
+			build = LeanModelReader.readBuildinfo(veracodeUploadClient.getBuildInfo(appId, Long.toString(buildId)));
+		} finally {
+			account.returnClient(veracodeUploadClient);
+		}
+		if (!build.isResultsReady() || build.getPolicyComplianceStatus() == null || build.getPolicyComplianceStatus() == PolicyComplianceType.CALCULATING) {
+			return null;
+		}
+		if (build.getPublishedDate() != LeanBuildinfo.NONE) {
+			CompletionEstimator.get().recordScanCompletion(appId, buildId, build.getPublishedDate());
+		}
+		return new ScanVerdict(appId, buildId, build.getPolicyComplianceStatus(), build.getRulesStatus());
+	}
+
+	private static class PersistedWatch {
+
+		private final String appId;
+		private final String appName;
+		private final long buildId;
+		private final long created;
+
+		private PersistedWatch(String appId, String appName, long buildId, long created) {
+			this.appId = appId;
+			this.appName = appName;
+			this.buildId = buildId;
+			this.created = created;
+		}
+	}
+
+	private class Watch implements Runnable {
+
+		private final String appId;
+		private final long buildId;
+		private long created = System.currentTimeMillis();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile String appName;
+		private volatile ScanVerdict verdict;
+		private volatile Exception error;
+		private int waiters;
+		private int failures;
+		private ScheduledFuture<?> next;
+
+		private Watch(String appId, long buildId) {
+			this.appId = appId;
+			this.buildId = buildId;
+		}
+
+		public void run() {
+			try {
+				ScanVerdict result = check(appId, buildId);
+				if (result != null) {
+					complete(this, result, null);
+					if (appName != null) {
+						VeracodeResultsTrigger.fire(appName, result);
+					}
+					return;
+				}
+				failures = 0;
+			} catch (Exception e) {
+				if (++failures >= MAX_FAILURES) {
+					complete(this, null, e);
+					return;
+				}
+				LOGGER.log(Level.FINE, "Failed to check results of Veracode build " + buildId + ", will retry", e);
+			}
+			reschedule(this);
+		}
+	}
+}
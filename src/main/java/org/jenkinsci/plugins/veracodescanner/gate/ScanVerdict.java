@@ -0,0 +1,57 @@
+package org.jenkinsci.plugins.veracodescanner.gate;
+
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.PolicyComplianceType;
+
+/**
+ * Final policy evaluation of one Veracode build.
+ */
+public class ScanVerdict {
+
+	private final String appId;
+	private final long buildId;
+	private final PolicyComplianceType policyComplianceStatus;
+	private final PolicyComplianceType rulesStatus;
+
+	public ScanVerdict(String appId, long buildId, PolicyComplianceType policyComplianceStatus, PolicyComplianceType rulesStatus) {
+		this.appId = appId;
+		this.buildId = buildId;
+		this.policyComplianceStatus = policyComplianceStatus;
+		this.rulesStatus = rulesStatus;
+	}
+
+	public String getAppId() {
+		return appId;
+	}
+
+	public long getBuildId() {
+		return buildId;
+	}
+
+	public PolicyComplianceType getPolicyComplianceStatus() {
+		return policyComplianceStatus;
+	}
+
+	public PolicyComplianceType getRulesStatus() {
+		return rulesStatus;
+	}
+
+	/**
+	 * @return whether both statuses pass. A status that is missing or not assessed does not pass.
+	 */
+	public boolean isPassing(boolean allowConditionalPass) {
+		return isPassing(policyComplianceStatus, allowConditionalPass) && isPassing(rulesStatus, allowConditionalPass);
+	}
+
+	private static boolean isPassing(PolicyComplianceType status, boolean allowConditionalPass) {
+		return status == PolicyComplianceType.PASS || (status == PolicyComplianceType.CONDITIONAL_PASS && allowConditionalPass);
+	}
+
+	@Override
+	public String toString() {
+		return "policy compliance '" + value(policyComplianceStatus) + "', rules '" + value(rulesStatus) + "'";
+	}
+
+	private static String value(PolicyComplianceType status) {
+		return status == null ? "n/a" : status.value();
+	}
+}
@@ -0,0 +1,161 @@
+package org.jenkinsci.plugins.veracodescanner.gate;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.model.Result;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.BuildStepMonitor;
+import hudson.tasks.Publisher;
+import hudson.tasks.Recorder;
+import hudson.util.FormValidation;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+import org.jenkinsci.plugins.veracodescanner.VeracodeBuildAction;
+import org.jenkinsci.plugins.veracodescanner.VeracodeNotifier;
+import org.jenkinsci.plugins.veracodescanner.credentials.CredentialPool;
+import org.jenkinsci.plugins.veracodescanner.exception.VeracodeScannerException;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.Buildinfo;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import com.veracode.apiwrapper.wrappers.UploadAPIWrapper;
+
+/**
+ * Gates a (typically downstream) build on the policy results of a Veracode build submitted elsewhere.
+ */
+public class VeracodePolicyGateRecorder extends Recorder {
+
+	private final String applicationName;
+	private final String buildId;
+	private final int timeoutHours;
+	private final boolean allowConditionalPass;
+
+	@DataBoundConstructor
+	public VeracodePolicyGateRecorder(String applicationName, String buildId, int timeoutHours, boolean allowConditionalPass) {
+		this.applicationName = applicationName;
+		this.buildId = buildId;
+		this.timeoutHours = timeoutHours;
+		this.allowConditionalPass = allowConditionalPass;
+	}
+
+	public String getApplicationName() {
+		return applicationName;
+	}
+
+	public String getBuildId() {
+		return buildId;
+	}
+
+	public int getTimeoutHours() {
+		return timeoutHours;
+	}
+
+	public boolean isAllowConditionalPass() {
+		return allowConditionalPass;
+	}
+
+	public BuildStepMonitor getRequiredMonitorService() {
+		return BuildStepMonitor.NONE;
+	}
+
+	@Override
+	public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+		try {
+			EnvVars envVars = build.getEnvironment(listener);
+			String appName = envVars.expand(applicationName);
+			String expandedBuildId = buildId == null ? "" : envVars.expand(buildId).trim();
+			VeracodeBuildAction action = null;
+			for (VeracodeBuildAction candidate : build.getActions(VeracodeBuildAction.class)) {
+				if (candidate.getAppName().equalsIgnoreCase(appName)) {
+					action = candidate;
+				}
+			}
+
+			String appId;
+			long veracodeBuildId;
+			if (expandedBuildId.length() == 0 && action != null) {
+				// started by a VeracodeResultsTrigger, or the Veracode build was recorded by an earlier step
+				appId = action.getAppId();
+				veracodeBuildId = action.getBuildId();
+			} else {
+				CredentialPool.Account account = CredentialPool.get().getDefault();
+				UploadAPIWrapper veracodeUploadClient = account.borrowClient();
+				try {
+					appId = VeracodeNotifier.getAppId(veracodeUploadClient, appName, listener);
+					if (appId == null) {
+						throw new VeracodeScannerException("Failed to get application id for app " + appName);
+					}
+					if (expandedBuildId.length() > 0) {
+						veracodeBuildId = Long.parseLong(expandedBuildId);
+					} else {
+						veracodeBuildId = getLatestBuildId(veracodeUploadClient, appId);
+					}
+				} finally {
+					account.returnClient(veracodeUploadClient);
+				}
+				build.addAction(new VeracodeBuildAction(appName, appId, veracodeBuildId));
+			}
+
+			Result result = new PolicyGate(timeoutHours, allowConditionalPass).evaluate(appId, veracodeBuildId, listener);
+			if (result.isWorseThan(Result.SUCCESS)) {
+				build.setResult(result);
+			}
+		} catch (NumberFormatException e) {
+			listener.fatalError("Not a valid Veracode build id: " + e.getMessage());
+			return false;
+		} catch (VeracodeScannerException e) {
+			listener.fatalError(e.getMessage());
+			return false;
+		}
+		return true;
+	}
+
+	private long getLatestBuildId(UploadAPIWrapper veracodeUploadClient, String appId) throws IOException, VeracodeScannerException {
+		try {
+			JAXBContext jaxbContext = JAXBContext.newInstance(Buildinfo.class);
+			Buildinfo buildInfo = (Buildinfo) jaxbContext.createUnmarshaller().unmarshal(new StringReader(veracodeUploadClient.getBuildInfo(appId)));
+			if (buildInfo.getBuild() == null) {
+				throw new VeracodeScannerException("Veracode application " + appId + " has no build to gate on");
+			}
+			return buildInfo.getBuild().getBuildId();
+		} catch (JAXBException e) {
+			throw new VeracodeScannerException("Unable to read the latest Veracode build of app " + appId, e);
+		}
+	}
+
+	@Extension
+	public static class DescriptorImpl extends BuildStepDescriptor<Publisher> {
+
+		public DescriptorImpl() {
+			super(VeracodePolicyGateRecorder.class);
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Veracode Policy Gate";
+		}
+
+		@Override
+		public boolean isApplicable(Class<? extends AbstractProject> item) {
+			return true;
+		}
+
+		public FormValidation doCheckTimeoutHours(@QueryParameter String timeoutHours) {
+			try {
+				Integer.parseInt(timeoutHours);
+				return FormValidation.ok();
+			} catch (NumberFormatException e) {
+				return FormValidation.error("Not a valid value for the timeout. Please specify an integer.");
+			}
+		}
+	}
+}
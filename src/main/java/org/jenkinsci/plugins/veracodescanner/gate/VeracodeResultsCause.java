@@ -0,0 +1,32 @@
+package org.jenkinsci.plugins.veracodescanner.gate;
+
+import hudson.model.Cause;
+
+/**
+ * Cause of builds started by {@link VeracodeResultsTrigger}.
+ */
+public class VeracodeResultsCause extends Cause {
+
+	private final String appName;
+	private final long buildId;
+	private final String verdict;
+
+	public VeracodeResultsCause(String appName, ScanVerdict verdict) {
+		this.appName = appName;
+		this.buildId = verdict.getBuildId();
+		this.verdict = verdict.toString();
+	}
+
+	public String getAppName() {
+		return appName;
+	}
+
+	public long getBuildId() {
+		return buildId;
+	}
+
+	@Override
+	public String getShortDescription() {
+		return "Veracode results of " + appName + " build " + buildId + " are ready: " + verdict;
+	}
+}
@@ -0,0 +1,88 @@
+package org.jenkinsci.plugins.veracodescanner.gate;
+
+import hudson.Extension;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.security.ACL;
+import hudson.triggers.Trigger;
+import hudson.triggers.TriggerDescriptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jenkins.model.Jenkins;
+
+import org.acegisecurity.context.SecurityContext;
+import org.acegisecurity.context.SecurityContextHolder;
+
+import org.jenkinsci.plugins.veracodescanner.VeracodeBuildAction;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Starts a job once the policy results of a Veracode build of the application are known. Together with a
+ * {@link org.jenkinsci.plugins.veracodescanner.VeracodeNotifier} that does not wait and a {@link VeracodePolicyGateRecorder} in the triggered job, this
+ * gates on scan results without any build holding an executor while Veracode is scanning.
+ */
+public class VeracodeResultsTrigger extends Trigger<AbstractProject<?, ?>> {
+
+	private final String applicationName;
+
+	@DataBoundConstructor
+	public VeracodeResultsTrigger(String applicationName) {
+		this.applicationName = applicationName;
+	}
+
+	public String getApplicationName() {
+		return applicationName;
+	}
+
+	private boolean isTriggeredBy(String appName) {
+		return applicationName != null && applicationName.trim().equalsIgnoreCase(appName);
+	}
+
+	/**
+	 * @return the jobs that will be started once results of the application are known. Looked up as the system, as
+	 *         this is called from background threads as well.
+	 */
+	public static List<AbstractProject<?, ?>> getTriggeredJobs(String appName) {
+		List<AbstractProject<?, ?>> jobs = new ArrayList<AbstractProject<?, ?>>();
+		SecurityContext context = ACL.impersonate(ACL.SYSTEM);
+		try {
+			for (AbstractProject<?, ?> project : Jenkins.getInstance().getAllItems(AbstractProject.class)) {
+				VeracodeResultsTrigger trigger = project.getTrigger(VeracodeResultsTrigger.class);
+				if (trigger != null && trigger.isTriggeredBy(appName) && !project.isDisabled()) {
+					jobs.add(project);
+				}
+			}
+		} finally {
+			SecurityContextHolder.setContext(context);
+		}
+		return jobs;
+	}
+
+	static void fire(String appName, ScanVerdict verdict) {
+		SecurityContext context = ACL.impersonate(ACL.SYSTEM);
+		try {
+			for (AbstractProject<?, ?> project : getTriggeredJobs(appName)) {
+				project.scheduleBuild(0, new VeracodeResultsCause(appName, verdict),
+						new VeracodeBuildAction(appName, verdict.getAppId(), verdict.getBuildId()));
+			}
+		} finally {
+			SecurityContextHolder.setContext(context);
+		}
+	}
+
+	@Extension
+	public static class DescriptorImpl extends TriggerDescriptor {
+
+		@Override
+		public boolean isApplicable(Item item) {
+			return item instanceof AbstractProject;
+		}
+
+		@Override
+		public String getDisplayName() {
+			return "Build when Veracode results are ready";
+		}
+	}
+}
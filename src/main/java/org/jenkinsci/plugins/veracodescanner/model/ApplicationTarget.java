@@ -0,0 +1,26 @@
+package org.jenkinsci.plugins.veracodescanner.model;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * A Veracode application scanned by a job together with the artifacts submitted to it.
+ */
+public class ApplicationTarget {
+
+	private final String applicationName;
+	private final String includes;
+
+	@DataBoundConstructor
+	public ApplicationTarget(String applicationName, String includes) {
+		this.applicationName = applicationName;
+		this.includes = includes;
+	}
+
+	public String getApplicationName() {
+		return applicationName;
+	}
+
+	public String getIncludes() {
+		return includes;
+	}
+}
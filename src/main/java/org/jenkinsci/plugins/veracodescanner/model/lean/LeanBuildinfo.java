@@ -0,0 +1,125 @@
+package org.jenkinsci.plugins.veracodescanner.model.lean;
+
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.AnalysisType;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.LifecycleStageType;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.PlatformType;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.PolicyComplianceType;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.StatusType;
+
+/**
+ * The build of a getbuildinfo response, with its first analysis unit flattened into it, as read by
+ * {@link LeanModelReader}. Dates are epoch milliseconds and numbers are primitives, with {@link #NONE} or
+ * {@link #NONE_INT} for absent values; enumerations are the shared constants of the JAXB model.
+ */
+public final class LeanBuildinfo {
+
+	/** Absent long value, which unlike -1 is no valid date. */
+	public static final long NONE = Long.MIN_VALUE;
+	/** Absent int value. */
+	public static final int NONE_INT = Integer.MIN_VALUE;
+
+	long appId = NONE;
+	boolean build;
+	long buildId = NONE;
+	String version;
+	PlatformType platform;
+	LifecycleStageType lifecycleStage;
+	boolean resultsReady;
+	String policyName;
+	int policyVersion = NONE_INT;
+	PolicyComplianceType policyComplianceStatus;
+	PolicyComplianceType rulesStatus;
+	boolean gracePeriodExpired;
+	boolean scanOverdue;
+	int analysisUnits;
+	AnalysisType analysisType;
+	StatusType status;
+	long publishedDate = NONE;
+	int estimatedScanHours = NONE_INT;
+	long estimatedDeliveryDate = NONE;
+
+	LeanBuildinfo() {
+	}
+
+	public long getAppId() {
+		return appId;
+	}
+
+	/**
+	 * @return whether the response contained a build at all
+	 */
+	public boolean hasBuild() {
+		return build;
+	}
+
+	public long getBuildId() {
+		return buildId;
+	}
+
+	public String getVersion() {
+		return version;
+	}
+
+	public PlatformType getPlatform() {
+		return platform;
+	}
+
+	public LifecycleStageType getLifecycleStage() {
+		return lifecycleStage;
+	}
+
+	public boolean isResultsReady() {
+		return resultsReady;
+	}
+
+	public String getPolicyName() {
+		return policyName;
+	}
+
+	public int getPolicyVersion() {
+		return policyVersion;
+	}
+
+	public PolicyComplianceType getPolicyComplianceStatus() {
+		return policyComplianceStatus;
+	}
+
+	public PolicyComplianceType getRulesStatus() {
+		return rulesStatus;
+	}
+
+	public boolean isGracePeriodExpired() {
+		return gracePeriodExpired;
+	}
+
+	public boolean isScanOverdue() {
+		return scanOverdue;
+	}
+
+	/**
+	 * @return number of analysis units of the build, only the first of which is kept
+	 */
+	public int getAnalysisUnits() {
+		return analysisUnits;
+	}
+
+	public AnalysisType getAnalysisType() {
+		return analysisType;
+	}
+
+	public StatusType getStatus() {
+		return status;
+	}
+
+	public long getPublishedDate() {
+		return publishedDate;
+	}
+
+	public int getEstimatedScanHours() {
+		return estimatedScanHours;
+	}
+
+	public long getEstimatedDeliveryDate() {
+		return estimatedDeliveryDate;
+	}
+}
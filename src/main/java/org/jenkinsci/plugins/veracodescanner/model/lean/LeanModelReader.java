@@ -0,0 +1,274 @@
+package org.jenkinsci.plugins.veracodescanner.model.lean;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.AnalysisType;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.LifecycleStageType;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.PlatformType;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.PolicyComplianceType;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.StatusType;
+
+/**
+ * Reads Veracode API responses with a streaming parser straight into the lean model, without building the JAXB object
+ * graph. Elements are matched by local name, so the schema version in the namespace does not matter. Values that
+ * cannot be parsed are left absent, as JAXB does.
+ */
+public final class LeanModelReader {
+
+	private static final int MAX_SHARED_STRINGS = 4096;
+
+	private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+	static {
+		FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+	}
+
+	private static final Map<String, StatusType> STATUSES = new HashMap<String, StatusType>();
+	private static final Map<String, PolicyComplianceType> COMPLIANCE = new HashMap<String, PolicyComplianceType>();
+	private static final Map<String, AnalysisType> ANALYSIS_TYPES = new HashMap<String, AnalysisType>();
+	private static final Map<String, PlatformType> PLATFORMS = new HashMap<String, PlatformType>();
+	private static final Map<String, LifecycleStageType> LIFECYCLE_STAGES = new HashMap<String, LifecycleStageType>();
+	static {
+		for (StatusType value : StatusType.values()) {
+			STATUSES.put(value.value(), value);
+		}
+		for (PolicyComplianceType value : PolicyComplianceType.values()) {
+			COMPLIANCE.put(value.value(), value);
+		}
+		for (AnalysisType value : AnalysisType.values()) {
+			ANALYSIS_TYPES.put(value.value(), value);
+		}
+		for (PlatformType value : PlatformType.values()) {
+			PLATFORMS.put(value.value(), value);
+		}
+		for (LifecycleStageType value : LifecycleStageType.values()) {
+			LIFECYCLE_STAGES.put(value.value(), value);
+		}
+	}
+
+	private static final ConcurrentMap<String, String> SHARED = new ConcurrentHashMap<String, String>();
+
+	private LeanModelReader() {
+	}
+
+	public static LeanBuildinfo readBuildinfo(String xml) throws XMLStreamException {
+		XMLStreamReader reader = FACTORY.createXMLStreamReader(new StringReader(xml));
+		try {
+			root(reader, "buildinfo");
+			LeanBuildinfo info = new LeanBuildinfo();
+			info.appId = parseLong(reader.getAttributeValue(null, "app_id"));
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String element = reader.getLocalName();
+				if ("build".equals(element) && !info.build) {
+					info.build = true;
+					info.buildId = parseLong(reader.getAttributeValue(null, "build_id"));
+					info.version = reader.getAttributeValue(null, "version");
+					info.platform = PLATFORMS.get(reader.getAttributeValue(null, "platform"));
+					info.lifecycleStage = LIFECYCLE_STAGES.get(reader.getAttributeValue(null, "lifecycle_stage"));
+					info.resultsReady = parseBoolean(reader.getAttributeValue(null, "results_ready"));
+					info.policyName = share(reader.getAttributeValue(null, "policy_name"));
+					info.policyVersion = parseInt(reader.getAttributeValue(null, "policy_version"));
+					info.policyComplianceStatus = COMPLIANCE.get(reader.getAttributeValue(null, "policy_compliance_status"));
+					info.rulesStatus = COMPLIANCE.get(reader.getAttributeValue(null, "rules_status"));
+					info.gracePeriodExpired = parseBoolean(reader.getAttributeValue(null, "grace_period_expired"));
+					info.scanOverdue = parseBoolean(reader.getAttributeValue(null, "scan_overdue"));
+				} else if ("analysis_unit".equals(element) && info.analysisUnits++ == 0) {
+					info.analysisType = ANALYSIS_TYPES.get(reader.getAttributeValue(null, "analysis_type"));
+					info.status = STATUSES.get(reader.getAttributeValue(null, "status"));
+					info.publishedDate = parseDateTime(reader.getAttributeValue(null, "published_date"));
+					info.estimatedScanHours = parseInt(reader.getAttributeValue(null, "estimated_scan_hours"));
+					info.estimatedDeliveryDate = parseDateTime(reader.getAttributeValue(null, "estimated_delivery_date"));
+				}
+			}
+			return info;
+		} finally {
+			reader.close();
+		}
+	}
+
+	public static LeanPrescanResults readPrescanResults(String xml) throws XMLStreamException {
+		XMLStreamReader reader = FACTORY.createXMLStreamReader(new StringReader(xml));
+		try {
+			root(reader, "prescanresults");
+			LeanPrescanResults results = new LeanPrescanResults();
+			results.appId = parseLong(reader.getAttributeValue(null, "app_id"));
+			results.buildId = parseLong(reader.getAttributeValue(null, "build_id"));
+			int module = -1;
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String element = reader.getLocalName();
+				if ("module".equals(element)) {
+					module = results.addModule(parseLong(reader.getAttributeValue(null, "id")), reader.getAttributeValue(null, "name"),
+							share(reader.getAttributeValue(null, "platform")), share(reader.getAttributeValue(null, "status")),
+							parseBoolean(reader.getAttributeValue(null, "has_fatal_errors")));
+				} else if (module >= 0 && ("issue".equals(element) || "file_issue".equals(element))) {
+					results.addIssue(module);
+				}
+			}
+			return results;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * @return the build a file list belongs to, {@link LeanBuildinfo#NONE} if the response does not name it
+	 */
+	public static long readFilelistBuildId(String xml) throws XMLStreamException {
+		XMLStreamReader reader = FACTORY.createXMLStreamReader(new StringReader(xml));
+		try {
+			root(reader, "filelist");
+			return parseLong(reader.getAttributeValue(null, "build_id"));
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Moves to the root element, which has to have the given name. Veracode answers with an error element instead,
+	 * e.g. while prescan results are not available yet.
+	 */
+	private static void root(XMLStreamReader reader, String name) throws XMLStreamException {
+		reader.nextTag();
+		if (!name.equals(reader.getLocalName())) {
+			String found = reader.getLocalName();
+			String text = reader.getElementText();
+			throw new XMLStreamException("Expected " + name + " but got " + found + (text.trim().length() > 0 ? ": " + text.trim() : ""));
+		}
+	}
+
+	/**
+	 * @return the shared instance of an often repeated value
+	 */
+	private static String share(String value) {
+		if (value == null) {
+			return null;
+		}
+		String shared = SHARED.get(value);
+		if (shared != null) {
+			return shared;
+		}
+		if (SHARED.size() < MAX_SHARED_STRINGS) {
+			shared = SHARED.putIfAbsent(value, value);
+		}
+		return shared != null ? shared : value;
+	}
+
+	private static boolean parseBoolean(String value) {
+		return "true".equals(value) || "1".equals(value);
+	}
+
+	static long parseLong(String value) {
+		if (value == null || value.length() == 0 || value.length() > 18) {
+			return LeanBuildinfo.NONE;
+		}
+		long result = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return LeanBuildinfo.NONE;
+			}
+			result = result * 10 + (c - '0');
+		}
+		return result;
+	}
+
+	static int parseInt(String value) {
+		long result = parseLong(value);
+		return result == LeanBuildinfo.NONE || result > Integer.MAX_VALUE ? LeanBuildinfo.NONE_INT : (int) result;
+	}
+
+	/**
+	 * Parses an xsd:dateTime such as 2013-07-17T12:36:38-05:00 without creating calendars. A date without time zone is
+	 * taken to be local time, as {@link javax.xml.datatype.XMLGregorianCalendar#toGregorianCalendar()} does.
+	 *
+	 * @return epoch milliseconds, or {@link LeanBuildinfo#NONE} if the value is absent or invalid
+	 */
+	static long parseDateTime(String value) {
+		if (value == null || value.length() < 19 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T'
+				|| value.charAt(13) != ':' || value.charAt(16) != ':') {
+			return LeanBuildinfo.NONE;
+		}
+		int year = digits(value, 0, 4);
+		int month = digits(value, 5, 2);
+		int day = digits(value, 8, 2);
+		int hour = digits(value, 11, 2);
+		int minute = digits(value, 14, 2);
+		int second = digits(value, 17, 2);
+		if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 24 || minute < 0 || minute > 59 || second < 0
+				|| second > 60) {
+			return LeanBuildinfo.NONE;
+		}
+		int i = 19;
+		int millis = 0;
+		if (i < value.length() && value.charAt(i) == '.') {
+			int scale = 100;
+			for (i++; i < value.length() && value.charAt(i) >= '0' && value.charAt(i) <= '9'; i++) {
+				millis += (value.charAt(i) - '0') * scale;
+				scale /= 10;
+			}
+		}
+		long local = daysFromEpoch(year, month, day) * 86400000l + hour * 3600000l + minute * 60000l + second * 1000l + millis;
+
+		if (i == value.length()) {
+			TimeZone zone = TimeZone.getDefault();
+			return local - zone.getOffset(local - zone.getRawOffset());
+		}
+		char sign = value.charAt(i);
+		if (sign == 'Z' && i + 1 == value.length()) {
+			return local;
+		}
+		if ((sign != '+' && sign != '-') || i + 6 != value.length() || value.charAt(i + 3) != ':') {
+			return LeanBuildinfo.NONE;
+		}
+		int hours = digits(value, i + 1, 2);
+		int minutes = digits(value, i + 4, 2);
+		if (hours < 0 || minutes < 0) {
+			return LeanBuildinfo.NONE;
+		}
+		long offset = (hours * 60l + minutes) * 60000l;
+		return sign == '+' ? local - offset : local + offset;
+	}
+
+	/**
+	 * @return the number, or -1 if the characters are not all digits
+	 */
+	private static int digits(String value, int start, int count) {
+		int result = 0;
+		for (int i = start; i < start + count; i++) {
+			char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			result = result * 10 + (c - '0');
+		}
+		return result;
+	}
+
+	/**
+	 * @return days since 1970-01-01 of a date in the proleptic Gregorian calendar
+	 */
+	private static long daysFromEpoch(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+}
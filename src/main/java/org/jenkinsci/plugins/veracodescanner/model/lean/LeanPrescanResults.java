@@ -0,0 +1,106 @@
+package org.jenkinsci.plugins.veracodescanner.model.lean;
+
+/**
+ * The modules of a getprescanresults response as read by {@link LeanModelReader}, held in parallel arrays instead of
+ * one object per module. Names, platforms and statuses repeat across responses and are shared.
+ */
+public final class LeanPrescanResults {
+
+	public static final long NONE = LeanBuildinfo.NONE;
+
+	long appId = NONE;
+	long buildId = NONE;
+	private int modules;
+	private long[] ids = new long[16];
+	private String[] names = new String[16];
+	private String[] platforms = new String[16];
+	private String[] statuses = new String[16];
+	private boolean[] fatalErrors = new boolean[16];
+	private int[] issues = new int[16];
+
+	LeanPrescanResults() {
+	}
+
+	public long getAppId() {
+		return appId;
+	}
+
+	public long getBuildId() {
+		return buildId;
+	}
+
+	public int getModuleCount() {
+		return modules;
+	}
+
+	public long getModuleId(int module) {
+		return ids[check(module)];
+	}
+
+	public String getModuleName(int module) {
+		return names[check(module)];
+	}
+
+	public String getModulePlatform(int module) {
+		return platforms[check(module)];
+	}
+
+	public String getModuleStatus(int module) {
+		return statuses[check(module)];
+	}
+
+	public boolean hasFatalErrors(int module) {
+		return fatalErrors[check(module)];
+	}
+
+	/**
+	 * @return number of issues and file issues reported for the module
+	 */
+	public int getIssueCount(int module) {
+		return issues[check(module)];
+	}
+
+	/**
+	 * @return index of the added module
+	 */
+	int addModule(long id, String name, String platform, String status, boolean fatal) {
+		if (modules == ids.length) {
+			int capacity = modules * 2;
+			long[] grownIds = new long[capacity];
+			System.arraycopy(ids, 0, grownIds, 0, modules);
+			ids = grownIds;
+			String[] grownNames = new String[capacity];
+			System.arraycopy(names, 0, grownNames, 0, modules);
+			names = grownNames;
+			String[] grownPlatforms = new String[capacity];
+			System.arraycopy(platforms, 0, grownPlatforms, 0, modules);
+			platforms = grownPlatforms;
+			String[] grownStatuses = new String[capacity];
+			System.arraycopy(statuses, 0, grownStatuses, 0, modules);
+			statuses = grownStatuses;
+			boolean[] grownFatalErrors = new boolean[capacity];
+			System.arraycopy(fatalErrors, 0, grownFatalErrors, 0, modules);
+			fatalErrors = grownFatalErrors;
+			int[] grownIssues = new int[capacity];
+			System.arraycopy(issues, 0, grownIssues, 0, modules);
+			issues = grownIssues;
+		}
+		ids[modules] = id;
+		names[modules] = name;
+		platforms[modules] = platform;
+		statuses[modules] = status;
+		fatalErrors[modules] = fatal;
+		return modules++;
+	}
+
+	void addIssue(int module) {
+		issues[module]++;
+	}
+
+	private int check(int module) {
+		if (module < 0 || module >= modules) {
+			throw new IndexOutOfBoundsException("Module " + module + " of " + modules);
+		}
+		return module;
+	}
+}
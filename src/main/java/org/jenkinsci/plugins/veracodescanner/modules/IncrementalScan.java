@@ -0,0 +1,21 @@
+package org.jenkinsci.plugins.veracodescanner.modules;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Job setting to scan only the prescan modules whose contents changed since they were last scanned, with a full scan
+ * every few days.
+ */
+public class IncrementalScan {
+
+	private final int fullScanDays;
+
+	@DataBoundConstructor
+	public IncrementalScan(int fullScanDays) {
+		this.fullScanDays = fullScanDays;
+	}
+
+	public int getFullScanDays() {
+		return fullScanDays;
+	}
+}
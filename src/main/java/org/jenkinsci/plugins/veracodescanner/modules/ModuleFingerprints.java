@@ -0,0 +1,108 @@
+package org.jenkinsci.plugins.veracodescanner.modules;
+
+import hudson.XmlFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.veracodescanner.ScannerHome;
+import org.jenkinsci.plugins.veracodescanner.model.prescan.ModuleType;
+
+/**
+ * Content digests of the modules last scanned per application, matched to prescan modules by {@link ModuleType#getName()
+ * name}, which is the name of the uploaded file.
+ */
+public class ModuleFingerprints {
+
+	private static final Logger LOGGER = Logger.getLogger(ModuleFingerprints.class.getName());
+
+	private static ModuleFingerprints instance;
+
+	private Map<String, Application> applications = new HashMap<String, Application>();
+
+	public static synchronized ModuleFingerprints get() {
+		if (instance == null) {
+			instance = load();
+		}
+		return instance;
+	}
+
+	/**
+	 * @return whether the last full scan of the application is older than the given number of days, or unknown
+	 */
+	public synchronized boolean isFullScanDue(String appId, int fullScanDays) {
+		Application application = applications.get(appId);
+		return application == null || System.currentTimeMillis() - application.lastFullScan >= fullScanDays * 24l * 60l * 60l * 1000l;
+	}
+
+	/**
+	 * @param digests
+	 *            digests of the uploaded files by file name
+	 * @return the modules that have no digest or a different one than when they were last scanned
+	 */
+	public synchronized List<ModuleType> getChanged(String appId, List<ModuleType> modules, Map<String, String> digests) {
+		Application application = applications.get(appId);
+		List<ModuleType> changed = new ArrayList<ModuleType>();
+		for (ModuleType module : modules) {
+			String digest = digests.get(module.getName());
+			if (application == null || digest == null || !digest.equals(application.modules.get(module.getName()))) {
+				changed.add(module);
+			}
+		}
+		return changed;
+	}
+
+	public synchronized void recordScanned(String appId, List<ModuleType> modules, Map<String, String> digests, boolean fullScan) {
+		Application application = applications.get(appId);
+		if (application == null) {
+			application = new Application();
+			applications.put(appId, application);
+		}
+		if (fullScan) {
+			application.modules.clear();
+			application.lastFullScan = System.currentTimeMillis();
+		}
+		for (ModuleType module : modules) {
+			String digest = digests.get(module.getName());
+			if (digest != null) {
+				application.modules.put(module.getName(), digest);
+			}
+		}
+		save();
+	}
+
+	private void save() {
+		try {
+			getFile().write(this);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to save Veracode module fingerprints", e);
+		}
+	}
+
+	private static ModuleFingerprints load() {
+		XmlFile file = getFile();
+		if (file.exists()) {
+			try {
+				return (ModuleFingerprints) file.read();
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to load Veracode module fingerprints", e);
+			}
+		}
+		return new ModuleFingerprints();
+	}
+
+	private static XmlFile getFile() {
+		return ScannerHome.getFile("modules.xml");
+	}
+
+	private static class Application {
+
+		private final Map<String, String> modules = new HashMap<String, String>();
+		private long lastFullScan;
+	}
+}
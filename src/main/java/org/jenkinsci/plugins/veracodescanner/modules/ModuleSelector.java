@@ -0,0 +1,241 @@
+package org.jenkinsci.plugins.veracodescanner.modules;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jenkinsci.plugins.veracodescanner.model.prescan.ModuleType;
+
+/**
+ * Selects the prescan modules to scan by include and exclude rules, one per line:
+ * 
+ * <pre>
+ * include platform:*JVM*
+ * include platform:*JavaScript*
+ * exclude name:*test*
+ * exclude size:&gt;50MB
+ * </pre>
+ * 
+ * Platforms and names are matched case-insensitively against patterns with <code>*</code> and <code>?</code>
+ * wildcards, sizes are compared with <code>&lt;</code>, <code>&lt;=</code>, <code>&gt;</code> or <code>&gt;=</code>.
+ * A module is selected if it matches any include rule, or there are none, and no exclude rule. Rules are compiled once
+ * and shared by all submissions with the same rules.
+ */
+public class ModuleSelector {
+
+	private static final int MAX_CACHED = 100;
+
+	private static final Pattern RULE = Pattern.compile("(include|exclude)\\s+(platform|name|size)\\s*:\\s*(.+)", Pattern.CASE_INSENSITIVE);
+	private static final Pattern SIZE = Pattern.compile("(<=|>=|<|>)\\s*(\\d+)\\s*(B|KB|MB|GB)?", Pattern.CASE_INSENSITIVE);
+
+	private static final ModuleSelector ALL = new ModuleSelector(Collections.<Rule> emptyList(), Collections.<Rule> emptyList());
+
+	private static final Map<String, ModuleSelector> COMPILED = new LinkedHashMap<String, ModuleSelector>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ModuleSelector> eldest) {
+			return size() > MAX_CACHED;
+		}
+	};
+
+	private final List<Rule> includes;
+	private final List<Rule> excludes;
+
+	private ModuleSelector(List<Rule> includes, List<Rule> excludes) {
+		this.includes = includes;
+		this.excludes = excludes;
+	}
+
+	/**
+	 * @return the selector for the given rules, a selector of all modules if there are none
+	 * @throws IllegalArgumentException
+	 *             if a rule can't be parsed
+	 */
+	public static ModuleSelector compile(String rules) {
+		if (rules == null || rules.trim().length() == 0) {
+			return ALL;
+		}
+		synchronized (COMPILED) {
+			ModuleSelector selector = COMPILED.get(rules);
+			if (selector == null) {
+				selector = parse(rules);
+				COMPILED.put(rules, selector);
+			}
+			return selector;
+		}
+	}
+
+	/**
+	 * @return the rules equivalent to the former platform name setting
+	 */
+	public static String forPlatformName(String platformName) {
+		if (platformName == null || platformName.trim().length() == 0) {
+			return null;
+		}
+		return "include platform:*" + platformName.trim() + "*";
+	}
+
+	private static ModuleSelector parse(String rules) {
+		List<Rule> includes = new ArrayList<Rule>();
+		List<Rule> excludes = new ArrayList<Rule>();
+		int lineNumber = 0;
+		for (String line : rules.split("\\r?\\n")) {
+			lineNumber++;
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#")) {
+				continue;
+			}
+			Matcher m = RULE.matcher(line);
+			if (!m.matches()) {
+				throw new IllegalArgumentException("Line " + lineNumber + ": expected 'include' or 'exclude' followed by platform:, name: or size:, got " + line);
+			}
+			String attribute = m.group(2).toLowerCase(Locale.ENGLISH);
+			Rule rule;
+			if (attribute.equals("size")) {
+				rule = parseSize(m.group(3).trim(), lineNumber);
+			} else {
+				rule = new PatternRule(attribute.equals("platform"), toPattern(m.group(3).trim()));
+			}
+			if (m.group(1).equalsIgnoreCase("include")) {
+				includes.add(rule);
+			} else {
+				excludes.add(rule);
+			}
+		}
+		return new ModuleSelector(includes, excludes);
+	}
+
+	private static Rule parseSize(String value, int lineNumber) {
+		Matcher m = SIZE.matcher(value);
+		if (!m.matches()) {
+			throw new IllegalArgumentException("Line " + lineNumber + ": expected a size like >50MB, got " + value);
+		}
+		return new SizeRule(m.group(1), Long.parseLong(m.group(2)) * unit(m.group(3)));
+	}
+
+	private static Pattern toPattern(String glob) {
+		StringBuilder regex = new StringBuilder();
+		StringBuilder literal = new StringBuilder();
+		for (char c : glob.toCharArray()) {
+			if (c == '*' || c == '?') {
+				if (literal.length() > 0) {
+					regex.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				regex.append(c == '*' ? ".*" : ".");
+			} else {
+				literal.append(c);
+			}
+		}
+		if (literal.length() > 0) {
+			regex.append(Pattern.quote(literal.toString()));
+		}
+		return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	}
+
+	/**
+	 * @return the size of a module in bytes as reported by the prescan, e.g. <code>24KB</code>, or -1 if unknown
+	 */
+	static long parseModuleSize(String size) {
+		if (size == null) {
+			return -1;
+		}
+		Matcher m = Pattern.compile("\\s*(\\d+)\\s*(B|KB|MB|GB)?\\s*", Pattern.CASE_INSENSITIVE).matcher(size);
+		if (!m.matches()) {
+			return -1;
+		}
+		return Long.parseLong(m.group(1)) * unit(m.group(2));
+	}
+
+	private static long unit(String unit) {
+		if (unit == null || unit.equalsIgnoreCase("B")) {
+			return 1;
+		} else if (unit.equalsIgnoreCase("KB")) {
+			return 1024l;
+		} else if (unit.equalsIgnoreCase("MB")) {
+			return 1024l * 1024l;
+		} else {
+			return 1024l * 1024l * 1024l;
+		}
+	}
+
+	public boolean isAll() {
+		return includes.isEmpty() && excludes.isEmpty();
+	}
+
+	/**
+	 * @return the selected modules in prescan order
+	 */
+	public List<ModuleType> select(List<ModuleType> modules) {
+		if (isAll()) {
+			return modules;
+		}
+		List<ModuleType> selected = new ArrayList<ModuleType>();
+		for (ModuleType module : modules) {
+			if ((includes.isEmpty() || matchesAny(includes, module)) && !matchesAny(excludes, module)) {
+				selected.add(module);
+			}
+		}
+		return selected;
+	}
+
+	private static boolean matchesAny(List<Rule> rules, ModuleType module) {
+		for (Rule rule : rules) {
+			if (rule.matches(module)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private interface Rule {
+		boolean matches(ModuleType module);
+	}
+
+	private static class PatternRule implements Rule {
+
+		private final boolean platform;
+		private final Pattern pattern;
+
+		PatternRule(boolean platform, Pattern pattern) {
+			this.platform = platform;
+			this.pattern = pattern;
+		}
+
+		public boolean matches(ModuleType module) {
+			String value = platform ? module.getPlatform() : module.getName();
+			return value != null && pattern.matcher(value).matches();
+		}
+	}
+
+	private static class SizeRule implements Rule {
+
+		private final String operator;
+		private final long bytes;
+
+		SizeRule(String operator, long bytes) {
+			this.operator = operator;
+			this.bytes = bytes;
+		}
+
+		public boolean matches(ModuleType module) {
+			long size = parseModuleSize(module.getSize());
+			if (size < 0) {
+				return false;
+			}
+			if (operator.equals("<")) {
+				return size < bytes;
+			} else if (operator.equals("<=")) {
+				return size <= bytes;
+			} else if (operator.equals(">")) {
+				return size > bytes;
+			} else {
+				return size >= bytes;
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package org.jenkinsci.plugins.veracodescanner.offload;
+
+import hudson.model.Action;
+import hudson.model.Run;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Links a build to the uploads it handed over to the {@link OffloadQueue}.
+ */
+public class OffloadAction implements Action {
+
+	private final List<String> jobIds = new ArrayList<String>();
+
+	/**
+	 * Adds the job to the action of the build, creating the action for its first job.
+	 */
+	public static void add(Run<?, ?> build, OffloadJob job) {
+		synchronized (build) {
+			OffloadAction action = build.getAction(OffloadAction.class);
+			if (action == null) {
+				action = new OffloadAction();
+				build.addAction(action);
+			}
+			synchronized (action.jobIds) {
+				action.jobIds.add(job.getId());
+			}
+		}
+	}
+
+	/**
+	 * @return the jobs of the build that are still known to the queue
+	 */
+	public List<OffloadJob> getJobs() {
+		List<OffloadJob> jobs = new ArrayList<OffloadJob>();
+		synchronized (jobIds) {
+			for (String id : jobIds) {
+				OffloadJob job = OffloadQueue.get().getJob(id);
+				if (job != null) {
+					jobs.add(job);
+				}
+			}
+		}
+		return jobs;
+	}
+
+	public String getLog(OffloadJob job) {
+		return OffloadQueue.get().getLog(job);
+	}
+
+	public String getIconFileName() {
+		return "clipboard.png";
+	}
+
+	public String getDisplayName() {
+		return "Veracode Upload";
+	}
+
+	public String getUrlName() {
+		return "veracode-upload";
+	}
+}
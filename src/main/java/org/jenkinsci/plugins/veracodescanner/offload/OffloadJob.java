@@ -0,0 +1,226 @@
+package org.jenkinsci.plugins.veracodescanner.offload;
+
+import java.util.Date;
+import java.util.List;
+
+import org.jenkinsci.plugins.veracodescanner.staging.StagedFile;
+
+/**
+ * Persisted upload of staged artifacts that a build handed over to the {@link OffloadQueue} instead of waiting for it.
+ */
+public class OffloadJob {
+
+	public enum State {
+		QUEUED, RUNNING, SUBMITTED, SUPERSEDED, FAILED
+	}
+
+	private final String id;
+	private final String job;
+	private final int buildNumber;
+	private final String appName;
+	private final String appId;
+	private final String apiUser;
+	private final String platformName;
+	private final int prescanTimeout;
+	private final String moduleRules;
+	private final String scanName;
+	private final List<StagedFile> files;
+	private final Integer fullScanDays;
+	private final String submissionKey;
+	private final String revision;
+	private final long queued;
+	private State state;
+	private int attempts;
+	private long nextAttempt;
+	private long finished;
+	private String submissionId;
+	private String lastError;
+	private String supersededBy;
+	private Long veracodeBuildId;
+	private boolean buildCreated;
+
+	/**
+	 * @param scanName
+	 *            name of the Veracode build to create, null to let Veracode name it
+	 * @param fullScanDays
+	 *            days between full scans if only changed modules are to be scanned, otherwise null
+	 * @param submissionKey
+	 *            key to record the submission under in the submission history, null if duplicates are not skipped
+	 */
+	public OffloadJob(String id, String job, int buildNumber, String appName, String appId, String apiUser, String platformName, int prescanTimeout,
+			String moduleRules, String scanName, List<StagedFile> files, Integer fullScanDays, String submissionKey, String revision) {
+		this.id = id;
+		this.job = job;
+		this.buildNumber = buildNumber;
+		this.appName = appName;
+		this.appId = appId;
+		this.apiUser = apiUser;
+		this.platformName = platformName;
+		this.prescanTimeout = prescanTimeout;
+		this.moduleRules = moduleRules;
+		this.scanName = scanName;
+		this.files = files;
+		this.fullScanDays = fullScanDays;
+		this.submissionKey = submissionKey;
+		this.revision = revision;
+		this.queued = System.currentTimeMillis();
+		this.state = State.QUEUED;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getJob() {
+		return job;
+	}
+
+	public int getBuildNumber() {
+		return buildNumber;
+	}
+
+	public String getAppName() {
+		return appName;
+	}
+
+	public String getAppId() {
+		return appId;
+	}
+
+	public String getApiUser() {
+		return apiUser;
+	}
+
+	public String getPlatformName() {
+		return platformName;
+	}
+
+	public int getPrescanTimeout() {
+		return prescanTimeout;
+	}
+
+	public String getModuleRules() {
+		return moduleRules;
+	}
+
+	public String getScanName() {
+		return scanName;
+	}
+
+	public List<StagedFile> getFiles() {
+		return files;
+	}
+
+	public Integer getFullScanDays() {
+		return fullScanDays;
+	}
+
+	public String getSubmissionKey() {
+		return submissionKey;
+	}
+
+	public String getRevision() {
+		return revision;
+	}
+
+	public Date getQueued() {
+		return new Date(queued);
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public boolean isFinished() {
+		return state != State.QUEUED && state != State.RUNNING;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public Date getNextAttempt() {
+		return state == State.QUEUED && nextAttempt > 0 ? new Date(nextAttempt) : null;
+	}
+
+	long getNextAttemptMillis() {
+		return nextAttempt;
+	}
+
+	public Date getFinished() {
+		return finished > 0 ? new Date(finished) : null;
+	}
+
+	long getFinishedMillis() {
+		return finished;
+	}
+
+	/**
+	 * @return the id of the {@link org.jenkinsci.plugins.veracodescanner.submission.ScanSubmission} of the current or
+	 *         last attempt
+	 */
+	public String getSubmissionId() {
+		return submissionId;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	public String getSupersededBy() {
+		return supersededBy;
+	}
+
+	public Long getVeracodeBuildId() {
+		return veracodeBuildId;
+	}
+
+	/**
+	 * @return whether an attempt created the Veracode build, which later attempts upload into
+	 */
+	public boolean isBuildCreated() {
+		return buildCreated;
+	}
+
+	void buildCreated() {
+		this.buildCreated = true;
+	}
+
+	void started(String submissionId) {
+		this.state = State.RUNNING;
+		this.submissionId = submissionId;
+		this.attempts++;
+	}
+
+	void retry(String error, long nextAttempt) {
+		this.state = State.QUEUED;
+		this.lastError = error;
+		this.nextAttempt = nextAttempt;
+	}
+
+	/**
+	 * Queues a job that was interrupted by a restart, whose partially filled Veracode build was deleted.
+	 */
+	void requeue() {
+		this.state = State.QUEUED;
+		this.nextAttempt = 0;
+		this.buildCreated = false;
+	}
+
+	void finish(State state, Long veracodeBuildId, String error) {
+		this.state = state;
+		this.veracodeBuildId = veracodeBuildId;
+		this.lastError = error;
+		this.finished = System.currentTimeMillis();
+	}
+
+	void supersede(String supersededBy) {
+		this.supersededBy = supersededBy;
+		finish(State.SUPERSEDED, null, null);
+	}
+
+	@Override
+	public String toString() {
+		return job + " #" + buildNumber + " (app " + appName + ", " + state + ")";
+	}
+}
@@ -0,0 +1,398 @@
+package org.jenkinsci.plugins.veracodescanner.offload;
+
+import hudson.XmlFile;
+import hudson.model.AbstractProject;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.StreamTaskListener;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+import org.jenkinsci.plugins.veracodescanner.ScannerHome;
+import org.jenkinsci.plugins.veracodescanner.VeracodeNotifier;
+import org.jenkinsci.plugins.veracodescanner.credentials.CredentialPool;
+import org.jenkinsci.plugins.veracodescanner.exception.VeracodeScannerException;
+import org.jenkinsci.plugins.veracodescanner.gate.ResultPoller;
+import org.jenkinsci.plugins.veracodescanner.gate.VeracodeResultsTrigger;
+import org.jenkinsci.plugins.veracodescanner.staging.StagedFile;
+import org.jenkinsci.plugins.veracodescanner.staging.StagingArea;
+import org.jenkinsci.plugins.veracodescanner.submission.ScanSubmission;
+import org.jenkinsci.plugins.veracodescanner.submission.SubmissionHistory;
+import org.jenkinsci.plugins.veracodescanner.submission.SubmissionRunner;
+import org.jenkinsci.plugins.veracodescanner.submission.SubmissionStore;
+import org.jenkinsci.plugins.veracodescanner.telemetry.Telemetry;
+import org.jenkinsci.plugins.veracodescanner.upload.ParallelUploader;
+import org.jenkinsci.plugins.veracodescanner.upload.UploadGovernor;
+
+import com.veracode.apiwrapper.wrappers.UploadAPIWrapper;
+
+/**
+ * Controller-wide queue of {@link OffloadJob}s, persisted below the {@link ScannerHome} so that queued uploads survive
+ * a restart. Jobs are uploaded and submitted by a few threads of their own and retried with a growing delay when the
+ * Veracode API or the staged files could not be reached. A retry resumes the submission if all files were uploaded
+ * before the failure, instead of uploading them again. Finished jobs are kept for a week so that builds can still show how their upload went.
+ */
+public class OffloadQueue {
+
+	private static final Logger LOGGER = Logger.getLogger(OffloadQueue.class.getName());
+
+	private static final int THREADS = Integer.getInteger(OffloadQueue.class.getName() + ".threads", 2);
+	private static final int MAX_ATTEMPTS = Integer.getInteger(OffloadQueue.class.getName() + ".maxAttempts", 5);
+	private static final long RETRY_DELAY = Long.getLong(OffloadQueue.class.getName() + ".retryDelay", 60000l);
+	private static final long KEEP_FINISHED = 7 * 24 * 60 * 60000l;
+	private static final int MAX_LOG = 64 * 1024;
+
+	private static final OffloadQueue INSTANCE = new OffloadQueue();
+
+	private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(THREADS, new DaemonThreadFactory());
+	private final Map<String, OffloadJob> jobs = new ConcurrentHashMap<String, OffloadJob>();
+
+	public static OffloadQueue get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Takes over the staged files of the job, which are released once it is finished.
+	 */
+	public void enqueue(OffloadJob job) {
+		jobs.put(job.getId(), job);
+		save(job);
+		schedule(job, 0);
+	}
+
+	public OffloadJob getJob(String id) {
+		return jobs.get(id);
+	}
+
+	/**
+	 * @return the jobs of the given application that have not started uploading yet
+	 */
+	public List<OffloadJob> findQueued(String appId) {
+		List<OffloadJob> queued = new ArrayList<OffloadJob>();
+		for (OffloadJob job : jobs.values()) {
+			if (job.getAppId().equals(appId) && job.getState() == OffloadJob.State.QUEUED) {
+				queued.add(job);
+			}
+		}
+		return queued;
+	}
+
+	/**
+	 * Drops a queued job. Has to be called holding the {@link SubmissionStore#lockFor(String) lock} of its
+	 * application, like the start of a job.
+	 */
+	public void supersede(OffloadJob job, String supersededBy) {
+		if (job.getState() != OffloadJob.State.QUEUED) {
+			return;
+		}
+		job.supersede(supersededBy);
+		finished(job);
+	}
+
+	/**
+	 * @return the end of the log of the job's attempts
+	 */
+	public String getLog(OffloadJob job) {
+		File file = getLogFile(job);
+		if (!file.exists()) {
+			return "";
+		}
+		try {
+			RandomAccessFile log = new RandomAccessFile(file, "r");
+			try {
+				long start = Math.max(0, log.length() - MAX_LOG);
+				byte[] tail = new byte[(int) (log.length() - start)];
+				log.seek(start);
+				log.readFully(tail);
+				return new String(tail, "UTF-8");
+			} finally {
+				log.close();
+			}
+		} catch (IOException e) {
+			return "Unable to read " + file + ": " + e;
+		}
+	}
+
+	private void schedule(final OffloadJob job, long delay) {
+		executor.schedule(new Runnable() {
+			public void run() {
+				Telemetry.Span span = Telemetry.get().phase("queued upload", job.getAppId());
+				try {
+					upload(job);
+				} catch (Throwable t) {
+					LOGGER.log(Level.WARNING, "Unexpected failure of Veracode upload " + job, t);
+				} finally {
+					span.end(job.getState() == OffloadJob.State.SUBMITTED || job.getState() == OffloadJob.State.SUPERSEDED);
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void upload(OffloadJob job) throws IOException {
+		CredentialPool.Account account;
+		try {
+			account = CredentialPool.get().getAccount(job.getApiUser());
+		} catch (VeracodeScannerException e) {
+			failed(job, e);
+			return;
+		}
+		StreamTaskListener listener = new StreamTaskListener(new FileOutputStream(getLogFile(job), true));
+		ScanSubmission submission;
+		boolean resumed;
+		synchronized (SubmissionStore.get().lockFor(job.getAppId())) {
+			if (job.getState() != OffloadJob.State.QUEUED) {
+				listener.close();
+				return;
+			}
+			submission = SubmissionStore.get().find(job.getSubmissionId());
+			resumed = submission != null && submission.getState() != ScanSubmission.State.RESOLVED;
+			if (!resumed) {
+				submission = SubmissionStore.get().open(job.getJob(), job.getBuildNumber(), job.getAppId(), job.getPlatformName(),
+						job.getPrescanTimeout(), account.getUser(), job.getModuleRules());
+			}
+			job.started(submission.getId());
+			save(job);
+		}
+
+		UploadAPIWrapper veracodeUploadClient = account.borrowClient();
+		account.submissionStarted();
+		Exception failure = null;
+		try {
+			listener.getLogger().println("Attempt " + job.getAttempts() + " of " + MAX_ATTEMPTS + " as Veracode API user " + account.getUser());
+			if (resumed) {
+				listener.getLogger().println("All files were uploaded by an earlier attempt, resuming at " + submission.getState());
+			} else {
+				uploadFiles(job, submission, account, veracodeUploadClient, listener);
+			}
+			VeracodeNotifier.DescriptorImpl descriptor = Jenkins.getInstance().getDescriptorByType(VeracodeNotifier.DescriptorImpl.class);
+			new SubmissionRunner(veracodeUploadClient, listener, Boolean.TRUE.equals(descriptor.getVerbose())).run(submission);
+
+			if (submission.getSupersededBy() != null) {
+				job.supersede(submission.getSupersededBy());
+			} else if (submission.getState() == ScanSubmission.State.SCAN_STARTED) {
+				job.finish(OffloadJob.State.SUBMITTED, submission.getVeracodeBuildId(), null);
+				submitted(job);
+			} else if (submission.isBuildDeleted()) {
+				job.finish(OffloadJob.State.SUBMITTED, null, "No module changed, the Veracode build was deleted without a scan");
+			} else {
+				job.finish(OffloadJob.State.SUBMITTED, null, "No scan was started, see the log");
+			}
+			listener.getLogger().println("Veracode upload " + job.getState());
+			finished(job);
+		} catch (Exception e) {
+			listener.getLogger().println("Attempt " + job.getAttempts() + " failed: " + e);
+			failure = e;
+		} finally {
+			// the retry picks up a submission whose files were all uploaded
+			if (failure == null || !isRetried(job, failure) || submission.getState() == ScanSubmission.State.RESOLVED
+					|| submission.getSupersededBy() != null) {
+				SubmissionStore.get().close(submission);
+			}
+			account.submissionFinished();
+			account.returnClient(veracodeUploadClient);
+			listener.close();
+		}
+		if (failure != null) {
+			failed(job, failure);
+		}
+	}
+
+	private void uploadFiles(OffloadJob job, ScanSubmission submission, CredentialPool.Account account, UploadAPIWrapper veracodeUploadClient,
+			StreamTaskListener listener) throws IOException, InterruptedException {
+		List<File> files = new ArrayList<File>();
+		Map<String, String> moduleDigests = new HashMap<String, String>();
+		for (StagedFile staged : job.getFiles()) {
+			files.add(StagingArea.get().getFile(staged));
+			moduleDigests.put(staged.getName(), staged.getDigest());
+		}
+
+		// later attempts upload into the Veracode build created by an earlier one
+		if (job.getScanName() != null && !job.isBuildCreated()) {
+			listener.getLogger().println("Creating Veracode scan: " + job.getScanName());
+			SubmissionStore.get().buildCreated(submission, veracodeUploadClient.createBuild(job.getAppId(), job.getScanName()));
+			job.buildCreated();
+			save(job);
+		}
+		UploadGovernor.Lease lease = UploadGovernor.get().open(job.getJob() + " #" + job.getBuildNumber());
+		try {
+			new ParallelUploader(account).upload(job.getAppId(), files, submission, lease, listener.getLogger());
+			listener.getLogger().println("Upload finished: " + lease.getTotalTransfer());
+		} finally {
+			lease.close();
+		}
+
+		if (job.getFullScanDays() != null) {
+			SubmissionStore.get().scanChangedModules(submission, moduleDigests, job.getFullScanDays());
+		}
+		SubmissionStore.get().transition(submission, ScanSubmission.State.UPLOADED);
+	}
+
+	private void submitted(OffloadJob job) {
+		if (job.getSubmissionKey() != null) {
+			SubmissionHistory.get().record(job.getSubmissionKey(), job.getJob(), job.getBuildNumber(), job.getRevision(), job.getVeracodeBuildId());
+		}
+		List<AbstractProject<?, ?>> triggered = VeracodeResultsTrigger.getTriggeredJobs(job.getAppName());
+		if (job.getVeracodeBuildId() != null && !triggered.isEmpty()) {
+			ResultPoller.get().watch(job.getAppId(), job.getAppName(), job.getVeracodeBuildId());
+		}
+	}
+
+	/**
+	 * @return whether the job is attempted again after the failure. Only failures to reach the Veracode API or the
+	 *         staged files are retried; rejected artifacts, failed prescans and timeouts would fail the same way again.
+	 */
+	private static boolean isRetried(OffloadJob job, Exception e) {
+		if (job.getAttempts() >= MAX_ATTEMPTS) {
+			return false;
+		}
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof IOException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void failed(OffloadJob job, Exception e) {
+		String error = e.getMessage() != null ? e.getMessage() : e.toString();
+		if (!isRetried(job, e)) {
+			LOGGER.log(Level.WARNING, "Giving up Veracode upload " + job, e);
+			job.finish(OffloadJob.State.FAILED, null, error);
+			finished(job);
+			return;
+		}
+		long delay = RETRY_DELAY << Math.min(job.getAttempts() - 1, 10);
+		LOGGER.log(Level.INFO, "Veracode upload " + job + " failed, retrying in " + delay / 1000 + " seconds", e);
+		job.retry(error, System.currentTimeMillis() + delay);
+		save(job);
+		schedule(job, delay);
+	}
+
+	private void finished(OffloadJob job) {
+		save(job);
+		for (StagedFile staged : job.getFiles()) {
+			StagingArea.get().release(staged);
+		}
+		prune();
+	}
+
+	private void prune() {
+		long cutoff = System.currentTimeMillis() - KEEP_FINISHED;
+		for (OffloadJob job : jobs.values()) {
+			if (job.isFinished() && job.getFinishedMillis() < cutoff) {
+				jobs.remove(job.getId());
+				delete(getFile(job).getFile());
+				delete(getLogFile(job));
+			}
+		}
+	}
+
+	private void delete(File file) {
+		if (file.exists() && !file.delete()) {
+			LOGGER.warning("Unable to delete " + file);
+		}
+	}
+
+	private void save(OffloadJob job) {
+		try {
+			getFile(job).write(job);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to persist Veracode upload " + job, e);
+		}
+	}
+
+	private XmlFile getFile(OffloadJob job) {
+		return ScannerHome.getFile("offload/" + job.getId() + ".xml");
+	}
+
+	private File getLogFile(OffloadJob job) {
+		return new File(getDirectory(), job.getId() + ".log");
+	}
+
+	private File getDirectory() {
+		File dir = new File(ScannerHome.getRootDir(), "offload");
+		dir.mkdirs();
+		return dir;
+	}
+
+	/**
+	 * Loads the persisted jobs and schedules the unfinished ones. A job that was uploading or waiting for a retry when
+	 * the controller stopped is left to the {@link SubmissionStore} if its files were completely uploaded, and
+	 * uploaded again otherwise. Called by {@link SubmissionStore#resumeInFlight()} once the submissions are loaded.
+	 */
+	public static void resumeQueued() {
+		get().load();
+	}
+
+	private void load() {
+		File[] files = getDirectory().listFiles();
+		List<OffloadJob> loaded = new ArrayList<OffloadJob>();
+		for (File file : files == null ? new File[0] : files) {
+			if (!file.getName().endsWith(".xml")) {
+				continue;
+			}
+			try {
+				OffloadJob job = (OffloadJob) ScannerHome.getFile("offload/" + file.getName()).read();
+				jobs.put(job.getId(), job);
+				loaded.add(job);
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to read Veracode upload " + file, e);
+			}
+		}
+
+		for (OffloadJob job : loaded) {
+			if (job.isFinished()) {
+				continue;
+			}
+			for (StagedFile staged : job.getFiles()) {
+				StagingArea.get().acquire(staged);
+			}
+			ScanSubmission submission = SubmissionStore.get().find(job.getSubmissionId());
+			if (submission != null && submission.getState() != ScanSubmission.State.RESOLVED) {
+				job.finish(OffloadJob.State.SUBMITTED, null, "Controller restarted after the upload, the prescan was resumed in the background");
+				finished(job);
+				continue;
+			}
+			if (job.getState() == OffloadJob.State.RUNNING) {
+				job.requeue();
+				save(job);
+			}
+		}
+		StagingArea.get().purgeIncomplete();
+		prune();
+
+		List<OffloadJob> queued = new ArrayList<OffloadJob>();
+		for (OffloadJob job : loaded) {
+			if (job.getState() == OffloadJob.State.QUEUED) {
+				queued.add(job);
+			}
+		}
+		Collections.sort(queued, new Comparator<OffloadJob>() {
+			public int compare(OffloadJob a, OffloadJob b) {
+				return a.getQueued().compareTo(b.getQueued());
+			}
+		});
+		for (OffloadJob job : queued) {
+			schedule(job, Math.max(0, job.getNextAttemptMillis() - System.currentTimeMillis()));
+		}
+		if (!queued.isEmpty()) {
+			LOGGER.info("Resumed " + queued.size() + " queued Veracode upload(s)");
+		}
+	}
+}
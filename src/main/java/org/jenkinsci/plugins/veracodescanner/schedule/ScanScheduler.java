@@ -0,0 +1,109 @@
+package org.jenkinsci.plugins.veracodescanner.schedule;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Spreads scans of many applications over their scan frequency window. Each application gets a stable offset
+ * derived from its app id, and its scans are due on the days <code>offset + n * frequency</code> (UTC), no matter
+ * when the job was first set up. Applications with the same frequency therefore end up evenly distributed over the
+ * window.
+ */
+public class ScanScheduler {
+
+	private static final long DAY = 24l * 60l * 60l * 1000l;
+
+	public static int getOffsetDays(String appId, int frequencyDays) {
+		if (frequencyDays <= 1) {
+			return 0;
+		}
+		int h = appId.hashCode();
+		h ^= h >>> 16;
+		h *= 0x45d9f3b;
+		h ^= h >>> 16;
+		return (h & 0x7fffffff) % frequencyDays;
+	}
+
+	/**
+	 * @return the first slot of the application after the last scan that leaves at least half the frequency between
+	 *         the two scans
+	 */
+	public static long getNextScan(String appId, int frequencyDays, long lastScan) {
+		if (frequencyDays <= 0) {
+			return lastScan;
+		}
+		long period = frequencyDays * DAY;
+		long offset = getOffsetDays(appId, frequencyDays) * DAY;
+		long slot = floorDiv(lastScan - offset, period) * period + offset + period;
+		if (slot - lastScan <= period / 2) {
+			slot += period;
+		}
+		return slot;
+	}
+
+	/**
+	 * @param appIds
+	 *            applications to project
+	 * @param frequencies
+	 *            scan frequency of each application, in days
+	 * @param lastScans
+	 *            last published scan of each application, 0 if it was never scanned
+	 * @return number of scans due on each of the next <code>days</code> days, starting today (UTC); scans that are
+	 *         already overdue count for today
+	 */
+	public static List<DailyLoad> projectDailyLoad(List<String> appIds, List<Integer> frequencies, List<Long> lastScans, long now, int days) {
+		long today = floorDiv(now, DAY) * DAY;
+		int[] counts = new int[days];
+		long end = today + days * DAY;
+		for (int i = 0; i < appIds.size(); i++) {
+			String appId = appIds.get(i);
+			int frequency = frequencies.get(i);
+			long due = lastScans.get(i) > 0 ? getNextScan(appId, frequency, lastScans.get(i)) : now;
+			if (due < today) {
+				// overdue scans are submitted today, the following ones are back on the application's slots
+				due = now;
+			}
+			while (due < end) {
+				counts[(int) ((due - today) / DAY)]++;
+				if (frequency <= 0) {
+					break;
+				}
+				due = getNextScan(appId, frequency, due);
+			}
+		}
+
+		List<DailyLoad> load = new ArrayList<DailyLoad>();
+		for (int i = 0; i < days; i++) {
+			load.add(new DailyLoad(new Date(today + i * DAY), counts[i]));
+		}
+		return load;
+	}
+
+	private static long floorDiv(long x, long y) {
+		long q = x / y;
+		if ((x % y != 0) && ((x ^ y) < 0)) {
+			q--;
+		}
+		return q;
+	}
+
+	public static class DailyLoad {
+
+		private final Date day;
+		private final int scans;
+
+		public DailyLoad(Date day, int scans) {
+			this.day = day;
+			this.scans = scans;
+		}
+
+		public Date getDay() {
+			return day;
+		}
+
+		public int getScans() {
+			return scans;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package org.jenkinsci.plugins.veracodescanner.staging;
+
+/**
+ * An artifact copied into the {@link StagingArea}, identified by its original file name and the digest of its content.
+ */
+public class StagedFile {
+
+	private final String name;
+	private final String digest;
+
+	public StagedFile(String name, String digest) {
+		this.name = name;
+		this.digest = digest;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDigest() {
+		return digest;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
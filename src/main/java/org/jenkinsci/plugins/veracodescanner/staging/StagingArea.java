@@ -0,0 +1,225 @@
+package org.jenkinsci.plugins.veracodescanner.staging;
+
+import hudson.FilePath;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.veracodescanner.ScannerHome;
+import org.jenkinsci.plugins.veracodescanner.telemetry.Telemetry;
+
+/**
+ * Content-addressed cache of artifacts on the controller, stored as <code>staging/&lt;digest&gt;/&lt;name&gt;</code>
+ * below the {@link ScannerHome} and shared by all jobs. Identical artifacts are copied from the agents once. Content
+ * nobody uses stays cached until the cache grows beyond its limit, least recently used content is evicted first.
+ */
+public class StagingArea {
+
+	private static final Logger LOGGER = Logger.getLogger(StagingArea.class.getName());
+
+	private static final long MAX_SIZE = Long.getLong(StagingArea.class.getName() + ".maxMegabytes", 10240l) * 1024l * 1024l;
+
+	private static final StagingArea INSTANCE = new StagingArea();
+
+	private final Map<String, Integer> references = new HashMap<String, Integer>();
+	// bytes per digest, least recently used first
+	private final LinkedHashMap<String, Long> sizes = new LinkedHashMap<String, Long>(16, 0.75f, true);
+	private long totalSize;
+	private boolean loaded;
+
+	public static StagingArea get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Copies the artifact, possibly from an agent, unless the same content is cached under the same name already. Every
+	 * staged file has to be {@link #release(StagedFile) released} again.
+	 */
+	public StagedFile stage(FilePath file, String digest) throws IOException, InterruptedException {
+		StagedFile staged = new StagedFile(file.getName(), digest);
+		acquire(staged);
+		boolean done = false;
+		try {
+			File target = getFile(staged);
+			Telemetry.get().cacheLookup("staging", target.exists());
+			if (target.exists()) {
+				target.getParentFile().setLastModified(System.currentTimeMillis());
+			} else {
+				// copy under a temporary name first, so that a partial copy is never mistaken for the content
+				target.getParentFile().mkdirs();
+				File temp = File.createTempFile("staging", ".tmp", getDirectory());
+				if (file.isRemote()) {
+					file.copyTo(new FilePath(temp));
+				} else {
+					transfer(new File(file.getRemote()), temp);
+				}
+				if (!temp.renameTo(target)) {
+					temp.delete();
+					if (!target.exists()) {
+						throw new IOException("Unable to stage " + file.getRemote() + " as " + target);
+					}
+				}
+				added(staged);
+			}
+			done = true;
+			return staged;
+		} finally {
+			if (!done) {
+				release(staged);
+			}
+		}
+	}
+
+	/**
+	 * Copies a local file inside the kernel where the platform supports it, so that the content does not pass through
+	 * the Java heap.
+	 */
+	static void transfer(File source, File target) throws IOException {
+		FileInputStream in = new FileInputStream(source);
+		try {
+			FileOutputStream out = new FileOutputStream(target);
+			try {
+				FileChannel from = in.getChannel();
+				FileChannel to = out.getChannel();
+				long size = from.size();
+				long position = 0;
+				while (position < size) {
+					long transferred = from.transferTo(position, size - position, to);
+					if (transferred <= 0) {
+						throw new IOException(source + " was truncated while staging it");
+					}
+					position += transferred;
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return a local copy of the artifact, valid until it is released
+	 */
+	public File getFile(StagedFile staged) {
+		return new File(new File(getDirectory(), staged.getDigest()), staged.getName());
+	}
+
+	/**
+	 * Protects the content from eviction until it is released, e.g. for a queued upload that was loaded from disk.
+	 */
+	public synchronized void acquire(StagedFile staged) {
+		load();
+		Integer count = references.get(staged.getDigest());
+		references.put(staged.getDigest(), count == null ? 1 : count + 1);
+		sizes.get(staged.getDigest());
+	}
+
+	public synchronized void release(StagedFile staged) {
+		Integer count = references.get(staged.getDigest());
+		if (count != null && count > 1) {
+			references.put(staged.getDigest(), count - 1);
+			return;
+		}
+		references.remove(staged.getDigest());
+		evict();
+	}
+
+	/**
+	 * Deletes partial copies left behind when the controller stopped while staging.
+	 */
+	public synchronized void purgeIncomplete() {
+		File[] files = getDirectory().listFiles();
+		for (File file : files == null ? new File[0] : files) {
+			if (file.isFile()) {
+				delete(file);
+			}
+		}
+	}
+
+	public synchronized long getSize() {
+		load();
+		return totalSize;
+	}
+
+	private synchronized void added(StagedFile staged) {
+		File dir = new File(getDirectory(), staged.getDigest());
+		long size = 0;
+		File[] files = dir.listFiles();
+		for (File file : files == null ? new File[0] : files) {
+			size += file.length();
+		}
+		Long previous = sizes.put(staged.getDigest(), size);
+		totalSize += size - (previous != null ? previous : 0);
+		evict();
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> it = sizes.entrySet().iterator();
+		while (totalSize > MAX_SIZE && it.hasNext()) {
+			Map.Entry<String, Long> entry = it.next();
+			if (references.containsKey(entry.getKey())) {
+				continue;
+			}
+			totalSize -= entry.getValue();
+			it.remove();
+			delete(new File(getDirectory(), entry.getKey()));
+		}
+	}
+
+	/**
+	 * Reads the cached content from disk the first time the cache is used, ordered by when it was last staged.
+	 */
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		File[] dirs = getDirectory().listFiles();
+		if (dirs == null) {
+			return;
+		}
+		Arrays.sort(dirs, new Comparator<File>() {
+			public int compare(File a, File b) {
+				return Long.valueOf(a.lastModified()).compareTo(b.lastModified());
+			}
+		});
+		for (File dir : dirs) {
+			File[] files = dir.listFiles();
+			if (files == null) {
+				continue;
+			}
+			long size = 0;
+			for (File file : files) {
+				size += file.length();
+			}
+			sizes.put(dir.getName(), size);
+			totalSize += size;
+		}
+	}
+
+	private void delete(File file) {
+		try {
+			new FilePath(file).deleteRecursive();
+		} catch (Exception e) {
+			LOGGER.log(Level.WARNING, "Unable to delete staged artifact " + file, e);
+		}
+	}
+
+	private File getDirectory() {
+		File dir = new File(ScannerHome.getRootDir(), "staging");
+		dir.mkdirs();
+		return dir;
+	}
+}
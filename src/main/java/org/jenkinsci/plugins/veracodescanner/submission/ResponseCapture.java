@@ -0,0 +1,71 @@
+package org.jenkinsci.plugins.veracodescanner.submission;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the raw Veracode responses of a verbose submission in a gzip file next to the build instead of its console.
+ * Responses beyond a size cap are dropped.
+ */
+public class ResponseCapture {
+
+	private static final long MAX_BYTES = Long.getLong(ResponseCapture.class.getName() + ".maxBytes", 64l * 1024l * 1024l);
+
+	private final File file;
+	private OutputStream out;
+	private long written;
+	private boolean truncated;
+
+	public ResponseCapture(File file) {
+		this.file = file;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return whether the response was captured, false once the cap is reached or the file can't be written
+	 */
+	public synchronized boolean write(String label, String response) {
+		if (truncated) {
+			return false;
+		}
+		try {
+			if (out == null) {
+				file.getParentFile().mkdirs();
+				out = new GZIPOutputStream(new FileOutputStream(file));
+			}
+			byte[] bytes = response.getBytes("UTF-8");
+			if (written + bytes.length > MAX_BYTES) {
+				out.write(("<!-- capped at " + MAX_BYTES + " bytes, further responses were dropped -->\n").getBytes("UTF-8"));
+				truncated = true;
+				return false;
+			}
+			out.write(("<!-- " + label + " at " + new Date() + " -->\n").getBytes("UTF-8"));
+			out.write(bytes);
+			out.write('\n');
+			written += bytes.length;
+			return true;
+		} catch (IOException e) {
+			truncated = true;
+			return false;
+		}
+	}
+
+	public synchronized void close() {
+		if (out != null) {
+			try {
+				out.close();
+			} catch (IOException e) {
+				// the capture is informational only
+			}
+			out = null;
+		}
+		truncated = true;
+	}
+}
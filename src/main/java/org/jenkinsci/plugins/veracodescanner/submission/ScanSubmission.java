@@ -0,0 +1,154 @@
+package org.jenkinsci.plugins.veracodescanner.submission;
+
+import java.util.Map;
+
+/**
+ * Persisted progress of one submission to Veracode, so that it can be picked up again after a controller restart.
+ */
+public class ScanSubmission {
+
+	public enum State {
+		RESOLVED, UPLOADED, PRESCAN_STARTED, PRESCAN_DONE, SCAN_STARTED
+	}
+
+	private final String id;
+	private final String job;
+	private final int buildNumber;
+	private final String appId;
+	private final String platformName;
+	private final int prescanTimeout;
+	private final String apiUser;
+	private final String moduleRules;
+	private State state;
+	private long updated;
+	private long prescanStartedAt;
+	private volatile String supersededBy;
+	private Long veracodeBuildId;
+	private Map<String, String> moduleDigests;
+	private int fullScanDays;
+	private boolean buildDeleted;
+
+	public ScanSubmission(String id, String job, int buildNumber, String appId, String platformName, int prescanTimeout, String apiUser, String moduleRules) {
+		this.id = id;
+		this.job = job;
+		this.buildNumber = buildNumber;
+		this.appId = appId;
+		this.platformName = platformName;
+		this.prescanTimeout = prescanTimeout;
+		this.apiUser = apiUser;
+		this.moduleRules = moduleRules;
+		this.state = State.RESOLVED;
+		this.updated = System.currentTimeMillis();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getJob() {
+		return job;
+	}
+
+	public int getBuildNumber() {
+		return buildNumber;
+	}
+
+	public String getAppId() {
+		return appId;
+	}
+
+	public String getPlatformName() {
+		return platformName;
+	}
+
+	/**
+	 * @return the rules selecting the modules to scan, null for submissions of older versions that only had a platform
+	 *         name
+	 */
+	public String getModuleRules() {
+		return moduleRules;
+	}
+
+	public int getPrescanTimeout() {
+		return prescanTimeout;
+	}
+
+	/**
+	 * @return the Veracode API user the submission was started with, null for submissions of older versions
+	 */
+	public String getApiUser() {
+		return apiUser;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public long getUpdated() {
+		return updated;
+	}
+
+	/**
+	 * @return when the prescan was started, 0 if it was not started yet
+	 */
+	public long getPrescanStartedAt() {
+		return prescanStartedAt;
+	}
+
+	public Long getVeracodeBuildId() {
+		return veracodeBuildId;
+	}
+
+	void setVeracodeBuildId(Long veracodeBuildId) {
+		this.veracodeBuildId = veracodeBuildId;
+	}
+
+	/**
+	 * @return digests of the uploaded files by file name if only changed modules are to be scanned, otherwise null
+	 */
+	public Map<String, String> getModuleDigests() {
+		return moduleDigests;
+	}
+
+	public int getFullScanDays() {
+		return fullScanDays;
+	}
+
+	void setIncremental(Map<String, String> moduleDigests, int fullScanDays) {
+		this.moduleDigests = moduleDigests;
+		this.fullScanDays = fullScanDays;
+	}
+
+	/**
+	 * @return whether no module changed since it was last scanned, so the Veracode build was deleted instead of scanned
+	 */
+	public boolean isBuildDeleted() {
+		return buildDeleted;
+	}
+
+	void setBuildDeleted() {
+		this.buildDeleted = true;
+		this.veracodeBuildId = null;
+	}
+
+	public String getSupersededBy() {
+		return supersededBy;
+	}
+
+	void setSupersededBy(String supersededBy) {
+		this.supersededBy = supersededBy;
+	}
+
+	void setState(State state) {
+		this.state = state;
+		this.updated = System.currentTimeMillis();
+		if (state == State.PRESCAN_STARTED) {
+			this.prescanStartedAt = updated;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return job + " #" + buildNumber + " (app " + appId + ", " + state + ")";
+	}
+}
@@ -0,0 +1,146 @@
+package org.jenkinsci.plugins.veracodescanner.submission;
+
+import hudson.XmlFile;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jenkinsci.plugins.veracodescanner.ScannerHome;
+import org.jenkinsci.plugins.veracodescanner.telemetry.Telemetry;
+
+/**
+ * Controller-wide record of what has been submitted to which application, keyed by SCM revision and the digests of
+ * the submitted artifacts. Lets PR, branch and release jobs building the same commit skip submitting it again.
+ */
+public class SubmissionHistory {
+
+	private static final Logger LOGGER = Logger.getLogger(SubmissionHistory.class.getName());
+
+	private static final int MAX_ENTRIES = 5000;
+
+	private static SubmissionHistory instance;
+
+	private Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+	public static synchronized SubmissionHistory get() {
+		if (instance == null) {
+			instance = load();
+		}
+		return instance;
+	}
+
+	/**
+	 * @return a key that is equal for the same application, revision and set of artifact contents, regardless of
+	 *         file names and order
+	 */
+	public static String key(String appId, String revision, List<String> digests) {
+		List<String> sorted = new ArrayList<String>(digests);
+		Collections.sort(sorted);
+		try {
+			MessageDigest sha = MessageDigest.getInstance("SHA-256");
+			sha.update((appId + '|' + (revision == null ? "" : revision)).getBytes("UTF-8"));
+			for (String digest : sorted) {
+				sha.update((byte) '|');
+				sha.update(digest.getBytes("UTF-8"));
+			}
+			StringBuilder sb = new StringBuilder();
+			for (byte b : sha.digest()) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public synchronized Entry find(String key) {
+		Entry entry = entries.get(key);
+		Telemetry.get().cacheLookup("submission history", entry != null);
+		return entry;
+	}
+
+	public synchronized void record(String key, String job, int buildNumber, String revision, Long veracodeBuildId) {
+		entries.remove(key);
+		entries.put(key, new Entry(job, buildNumber, revision, veracodeBuildId));
+		Iterator<String> it = entries.keySet().iterator();
+		while (entries.size() > MAX_ENTRIES && it.hasNext()) {
+			it.next();
+			it.remove();
+		}
+		try {
+			getFile().write(this);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to save Veracode submission history", e);
+		}
+	}
+
+	private static SubmissionHistory load() {
+		XmlFile file = getFile();
+		if (file.exists()) {
+			try {
+				return (SubmissionHistory) file.read();
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to load Veracode submission history", e);
+			}
+		}
+		return new SubmissionHistory();
+	}
+
+	private static XmlFile getFile() {
+		return ScannerHome.getFile("submitted.xml");
+	}
+
+	public static class Entry {
+
+		private final String job;
+		private final int buildNumber;
+		private final String revision;
+		private final Long veracodeBuildId;
+		private final long submitted;
+
+		public Entry(String job, int buildNumber, String revision, Long veracodeBuildId) {
+			this.job = job;
+			this.buildNumber = buildNumber;
+			this.revision = revision;
+			this.veracodeBuildId = veracodeBuildId;
+			this.submitted = System.currentTimeMillis();
+		}
+
+		public String getJob() {
+			return job;
+		}
+
+		public int getBuildNumber() {
+			return buildNumber;
+		}
+
+		public String getRevision() {
+			return revision;
+		}
+
+		public Long getVeracodeBuildId() {
+			return veracodeBuildId;
+		}
+
+		public long getSubmitted() {
+			return submitted;
+		}
+
+		@Override
+		public String toString() {
+			return job + " #" + buildNumber + (veracodeBuildId != null ? " (Veracode build " + veracodeBuildId + ")" : "");
+		}
+	}
+}
@@ -0,0 +1,314 @@
+package org.jenkinsci.plugins.veracodescanner.submission;
+
+import hudson.model.TaskListener;
+
+import java.io.StringReader;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import org.jenkinsci.plugins.veracodescanner.estimate.CompletionEstimator;
+import org.jenkinsci.plugins.veracodescanner.exception.VeracodeScannerException;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.Buildinfo;
+import org.jenkinsci.plugins.veracodescanner.model.prescan.ModuleType;
+import org.jenkinsci.plugins.veracodescanner.model.prescan.Prescanresults;
+import org.jenkinsci.plugins.veracodescanner.modules.ModuleFingerprints;
+import org.jenkinsci.plugins.veracodescanner.modules.ModuleSelector;
+
+import com.veracode.apiwrapper.wrappers.UploadAPIWrapper;
+
+/**
+ * Drives an uploaded {@link ScanSubmission} through prescan to the start of the scan, recording every transition.
+ */
+public class SubmissionRunner {
+
+	private final UploadAPIWrapper veracodeUploadClient;
+	private final TaskListener listener;
+	private final boolean verbose;
+	private final ResponseCapture capture;
+	private final SubmissionStore store = SubmissionStore.get();
+
+	public SubmissionRunner(UploadAPIWrapper veracodeUploadClient, TaskListener listener, boolean verbose) {
+		this(veracodeUploadClient, listener, verbose, null);
+	}
+
+	/**
+	 * @param capture
+	 *            receives the raw responses in verbose mode while the console only gets a summary, may be null
+	 */
+	public SubmissionRunner(UploadAPIWrapper veracodeUploadClient, TaskListener listener, boolean verbose, ResponseCapture capture) {
+		this.veracodeUploadClient = veracodeUploadClient;
+		this.listener = listener;
+		this.verbose = verbose;
+		this.capture = capture;
+	}
+
+	public void run(ScanSubmission submission) throws VeracodeScannerException {
+		Prescanresults prescanResult = null;
+
+		if (submission.getState() == ScanSubmission.State.RESOLVED) {
+			throw new VeracodeScannerException("Files for " + submission + " were not completely uploaded.");
+		}
+		if (submission.getState() == ScanSubmission.State.UPLOADED) {
+			synchronized (store.lockFor(submission.getAppId())) {
+				if (isSuperseded(submission)) {
+					return;
+				}
+				beginPreScan(submission);
+			}
+		}
+		if (submission.getState() == ScanSubmission.State.PRESCAN_STARTED) {
+			prescanResult = executePreScan(submission);
+			if (prescanResult == null) {
+				return;
+			}
+		}
+		if (submission.getState() == ScanSubmission.State.PRESCAN_DONE && !submission.isBuildDeleted()) {
+			if (prescanResult == null) {
+				prescanResult = readPreScanResults(submission.getAppId());
+			}
+			synchronized (store.lockFor(submission.getAppId())) {
+				if (isSuperseded(submission)) {
+					return;
+				}
+				executeScan(submission, prescanResult);
+			}
+		}
+	}
+
+	private boolean isSuperseded(ScanSubmission submission) {
+		if (submission.getSupersededBy() != null) {
+			listener.getLogger().println("Veracode submission was superseded by " + submission.getSupersededBy() + ", stopping.");
+			return true;
+		}
+		return false;
+	}
+
+	private void beginPreScan(ScanSubmission submission) throws VeracodeScannerException {
+		listener.getLogger().println("Starting execution of prescan.");
+		try {
+			veracodeUploadClient.beginPreScan(submission.getAppId());
+		} catch (Exception e) {
+			listener.getLogger().println("Failed to start prescan. " + e.getMessage());
+			throw new VeracodeScannerException(e);
+		}
+		store.transition(submission, ScanSubmission.State.PRESCAN_STARTED);
+	}
+
+	private Prescanresults executePreScan(ScanSubmission submission) throws VeracodeScannerException {
+		Prescanresults results = null;
+		CompletionEstimator estimator = CompletionEstimator.get();
+		String appId = submission.getAppId();
+		// submissions of older versions were last updated when the prescan was started
+		long startedAt = submission.getPrescanStartedAt() > 0 ? submission.getPrescanStartedAt() : submission.getUpdated();
+		long predictedAt = -1;
+		long deadline = startedAt + submission.getPrescanTimeout() * 60000l;
+		try {
+			long expected = estimator.estimatePrescan(appId);
+			if (expected > 0) {
+				predictedAt = startedAt + expected;
+				listener.getLogger().println("Prescans of this application took about " + expected / 60000 + " minutes, first check at "
+						+ new Date(CompletionEstimator.firstCheck(startedAt, predictedAt)));
+				sleepUntil(Math.min(CompletionEstimator.firstCheck(startedAt, predictedAt), deadline));
+			}
+
+			JAXBContext jaxbContext = JAXBContext.newInstance(Prescanresults.class);
+			Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+			int poll = 0;
+			String previousXml = null;
+			while (true) {
+				if (isSuperseded(submission)) {
+					return null;
+				}
+				String preScanResultsXml = veracodeUploadClient.getPreScanResults(appId);
+				poll++;
+				try {
+					results = (Prescanresults) jaxbUnmarshaller.unmarshal(new StringReader(preScanResultsXml));
+				} catch (JAXBException je) {
+					// Results not available yet, just ignore this exception for now.
+				}
+				if (verbose) {
+					capture("getprescanresults poll " + poll, preScanResultsXml);
+					listener.getLogger().println("Prescan poll " + poll + ": " + summarize(results, preScanResultsXml, previousXml));
+				}
+				previousXml = preScanResultsXml;
+				long remaining = deadline - System.currentTimeMillis();
+				if (results != null || remaining <= 0) {
+					break;
+				}
+				listener.getLogger().println("Minutes Left: " + (remaining + 59999) / 60000);
+				sleepUntil(System.currentTimeMillis() + Math.min(CompletionEstimator.CHECK_INTERVAL, remaining));
+			}
+		} catch (Exception e) {
+			listener.getLogger().println("Failed to get pre scan results. " + e.getMessage());
+			throw new VeracodeScannerException(e);
+		}
+		if (results == null) {
+			throw new VeracodeScannerException("Unable to get prescan results");
+		}
+
+		long finishedAt = System.currentTimeMillis();
+		listener.getLogger().println("Prescan is finished after " + (finishedAt - startedAt) / 60000 + " minutes"
+				+ (predictedAt > 0 ? " (predicted " + (predictedAt - startedAt) / 60000 + ")." : "."));
+		estimator.recordPrescan(appId, results.getBuildId() != null ? results.getBuildId() : 0, startedAt, predictedAt, finishedAt);
+		if (results.getBuildId() != null) {
+			submission.setVeracodeBuildId(results.getBuildId());
+		}
+		store.transition(submission, ScanSubmission.State.PRESCAN_DONE);
+		return results;
+	}
+
+	private void capture(String label, String response) {
+		if (capture != null) {
+			capture.write(label, response);
+		}
+	}
+
+	/**
+	 * @return a one line summary of a prescan response, to keep large responses out of the console
+	 */
+	static String summarize(Prescanresults results, String xml, String previousXml) {
+		if (xml.equals(previousXml)) {
+			return "unchanged since the last poll";
+		}
+		if (results == null) {
+			String text = xml.replaceAll("<[^>]*>", " ").replaceAll("\\s+", " ").trim();
+			return "no results yet" + (text.length() > 0 ? " (" + (text.length() > 200 ? text.substring(0, 200) + "..." : text) + ")" : "");
+		}
+		Map<String, Integer> statuses = new TreeMap<String, Integer>();
+		int fatal = 0;
+		for (ModuleType module : results.getModule()) {
+			String status = module.getStatus() != null ? module.getStatus() : "unknown";
+			Integer count = statuses.get(status);
+			statuses.put(status, count == null ? 1 : count + 1);
+			if (Boolean.TRUE.equals(module.isHasFatalErrors())) {
+				fatal++;
+			}
+		}
+		return results.getModule().size() + " module(s), statuses " + statuses + (fatal > 0 ? ", " + fatal + " with fatal errors" : "");
+	}
+
+	private void sleepUntil(long time) throws InterruptedException {
+		long delay = time - System.currentTimeMillis();
+		if (delay > 0) {
+			Thread.sleep(delay);
+		}
+	}
+
+	private Prescanresults readPreScanResults(String appId) throws VeracodeScannerException {
+		try {
+			JAXBContext jaxbContext = JAXBContext.newInstance(Prescanresults.class);
+			Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+			return (Prescanresults) jaxbUnmarshaller.unmarshal(new StringReader(veracodeUploadClient.getPreScanResults(appId)));
+		} catch (Exception e) {
+			throw new VeracodeScannerException("Unable to get prescan results", e);
+		}
+	}
+
+	/**
+	 * Scans the modules selected by the submission's module rules. If only changed modules are to be scanned, the
+	 * selection is narrowed to the modules whose uploaded file changed since it was last scanned, unless the periodic
+	 * full scan is due.
+	 */
+	private void executeScan(ScanSubmission submission, Prescanresults resultsOfPrescan) throws VeracodeScannerException {
+		String appId = submission.getAppId();
+		List<ModuleType> modules = resultsOfPrescan.getModule();
+		String rules = submission.getModuleRules() != null ? submission.getModuleRules() : ModuleSelector.forPlatformName(submission.getPlatformName());
+		List<ModuleType> candidates;
+		try {
+			candidates = ModuleSelector.compile(rules).select(modules);
+		} catch (IllegalArgumentException e) {
+			throw new VeracodeScannerException("Invalid module rules. " + e.getMessage(), e);
+		}
+
+		ModuleFingerprints fingerprints = ModuleFingerprints.get();
+		boolean fullScan = true;
+		List<ModuleType> selected = candidates;
+		if (submission.getModuleDigests() != null) {
+			fullScan = fingerprints.isFullScanDue(appId, submission.getFullScanDays());
+			if (!fullScan) {
+				selected = fingerprints.getChanged(appId, candidates, submission.getModuleDigests());
+			}
+		}
+
+		for (ModuleType module : selected) {
+			if (Boolean.TRUE.equals(module.isHasFatalErrors())) {
+				throw new VeracodeScannerException("Prescan failed for module " + module.getName() + ".  Check prescan results.");
+			}
+		}
+
+		try {
+			if (candidates.isEmpty()) {
+				throw new VeracodeScannerException("None of the " + modules.size() + " prescan modules is selected by the module rules.");
+			}
+			if (selected.isEmpty()) {
+				listener.getLogger().println("No module changed since it was last scanned, deleting the Veracode build instead of scanning it.");
+				veracodeUploadClient.deleteBuild(appId);
+				store.buildDeleted(submission);
+				return;
+			}
+
+			String buildInfoXml;
+			if (selected.size() == modules.size()) {
+				listener.getLogger().println("Starting execution of scan of all " + modules.size() + " module(s).");
+				buildInfoXml = veracodeUploadClient.beginScan(appId, null, "true");
+			} else {
+				StringBuilder moduleIds = new StringBuilder();
+				StringBuilder names = new StringBuilder();
+				for (ModuleType module : selected) {
+					moduleIds.append(moduleIds.length() > 0 ? "," : "").append(module.getId());
+					names.append(names.length() > 0 ? ", " : "").append(module.getName()).append(" (").append(module.getPlatform()).append(")");
+				}
+				listener.getLogger().println("Starting execution of scan of " + selected.size() + " of " + modules.size() + " module(s)"
+						+ (selected != candidates ? " that changed" : "") + ": " + names);
+				buildInfoXml = veracodeUploadClient.beginScan(appId, moduleIds.toString(), "false");
+			}
+
+			if (verbose) {
+				capture("beginscan", buildInfoXml);
+			}
+			recordScanStarted(submission, buildInfoXml);
+		} catch (VeracodeScannerException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new VeracodeScannerException(e);
+		}
+		if (submission.getModuleDigests() != null) {
+			fingerprints.recordScanned(appId, selected, submission.getModuleDigests(), fullScan);
+		}
+		store.transition(submission, ScanSubmission.State.SCAN_STARTED);
+		listener.getLogger().println("Scan has been started.");
+	}
+
+	private void recordScanStarted(ScanSubmission submission, String buildInfoXml) {
+		try {
+			JAXBContext jaxbContext = JAXBContext.newInstance(Buildinfo.class);
+			Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+			Buildinfo buildInfo = (Buildinfo) jaxbUnmarshaller.unmarshal(new StringReader(buildInfoXml));
+			if (buildInfo.getBuild() == null) {
+				return;
+			}
+			submission.setVeracodeBuildId(buildInfo.getBuild().getBuildId());
+			if (buildInfo.getBuild().getAnalysisUnit().isEmpty()) {
+				return;
+			}
+			if (verbose) {
+				listener.getLogger().println("Veracode build " + buildInfo.getBuild().getBuildId() + " is "
+						+ buildInfo.getBuild().getAnalysisUnit().get(0).getStatus().value() + ".");
+			}
+			long startedAt = System.currentTimeMillis();
+			long predictedAt = CompletionEstimator.estimateScanCompletion(buildInfo.getBuild().getAnalysisUnit().get(0), startedAt);
+			if (predictedAt > 0) {
+				listener.getLogger().println("Veracode estimates the results to be ready by " + new Date(predictedAt));
+				CompletionEstimator.get().recordScanPrediction(submission.getAppId(), buildInfo.getBuild().getBuildId(), startedAt, predictedAt);
+			}
+		} catch (JAXBException e) {
+			// The estimate is informational only, a response we can't read doesn't affect the scan.
+		}
+	}
+}
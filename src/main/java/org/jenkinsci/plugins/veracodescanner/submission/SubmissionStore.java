@@ -0,0 +1,306 @@
+package org.jenkinsci.plugins.veracodescanner.submission;
+
+import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.LogTaskListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLStreamException;
+
+import jenkins.model.Jenkins;
+
+import org.jenkinsci.plugins.veracodescanner.ScannerHome;
+import org.jenkinsci.plugins.veracodescanner.VeracodeNotifier;
+import org.jenkinsci.plugins.veracodescanner.credentials.CredentialPool;
+import org.jenkinsci.plugins.veracodescanner.exception.VeracodeScannerException;
+import org.jenkinsci.plugins.veracodescanner.model.lean.LeanBuildinfo;
+import org.jenkinsci.plugins.veracodescanner.model.lean.LeanModelReader;
+import org.jenkinsci.plugins.veracodescanner.offload.OffloadQueue;
+
+import com.veracode.apiwrapper.wrappers.UploadAPIWrapper;
+
+/**
+ * Writes a {@link ScanSubmission} to disk at every state transition and resumes the ones left in flight when the
+ * controller starts. Veracode builds whose files were not completely uploaded are deleted instead.
+ */
+public class SubmissionStore {
+
+	private static final Logger LOGGER = Logger.getLogger(SubmissionStore.class.getName());
+
+	private static final SubmissionStore INSTANCE = new SubmissionStore();
+
+	private final ConcurrentMap<String, Object> appLocks = new ConcurrentHashMap<String, Object>();
+	private final Map<String, ScanSubmission> live = new ConcurrentHashMap<String, ScanSubmission>();
+
+	public static SubmissionStore get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Decisions that change which Veracode build of an application is in flight are made while holding this lock.
+	 */
+	public Object lockFor(String appId) {
+		Object lock = appLocks.get(appId);
+		if (lock == null) {
+			Object newLock = new Object();
+			lock = appLocks.putIfAbsent(appId, newLock);
+			if (lock == null) {
+				lock = newLock;
+			}
+		}
+		return lock;
+	}
+
+	public ScanSubmission open(String job, int buildNumber, String appId, String platformName, int prescanTimeout, String apiUser, String moduleRules) {
+		ScanSubmission submission = new ScanSubmission(UUID.randomUUID().toString(), job, buildNumber, appId, platformName, prescanTimeout, apiUser,
+				moduleRules);
+		live.put(submission.getId(), submission);
+		save(submission);
+		return submission;
+	}
+
+	/**
+	 * @return the submissions of this controller for the given application that have not started their scan yet
+	 */
+	public List<ScanSubmission> findPending(String appId) {
+		List<ScanSubmission> pending = new ArrayList<ScanSubmission>();
+		for (ScanSubmission submission : live.values()) {
+			if (submission.getAppId().equals(appId) && submission.getState() != ScanSubmission.State.SCAN_STARTED
+					&& submission.getSupersededBy() == null) {
+				pending.add(submission);
+			}
+		}
+		return pending;
+	}
+
+	/**
+	 * @return the submission if it is in flight or was left in flight when the controller stopped, otherwise null
+	 */
+	public ScanSubmission find(String id) {
+		ScanSubmission submission = live.get(id);
+		if (submission != null || id == null) {
+			return submission;
+		}
+		XmlFile file = ScannerHome.getFile("submissions/" + id + ".xml");
+		if (file.exists()) {
+			try {
+				return (ScanSubmission) file.read();
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to read Veracode submission " + file, e);
+			}
+		}
+		return null;
+	}
+
+	public void supersede(ScanSubmission submission, String supersededBy) {
+		submission.setSupersededBy(supersededBy);
+		save(submission);
+	}
+
+	/**
+	 * Limits the scan to the modules whose digest changed since they were last scanned.
+	 */
+	public void scanChangedModules(ScanSubmission submission, Map<String, String> moduleDigests, int fullScanDays) {
+		submission.setIncremental(moduleDigests, fullScanDays);
+		save(submission);
+	}
+
+	/**
+	 * Records the Veracode build created for the submission, so that it can be deleted if the controller stops before
+	 * all files are uploaded.
+	 */
+	public void buildCreated(ScanSubmission submission, String buildInfoXml) {
+		try {
+			LeanBuildinfo info = LeanModelReader.readBuildinfo(buildInfoXml);
+			if (info.hasBuild()) {
+				recordBuildId(submission, info.getBuildId());
+			}
+		} catch (XMLStreamException e) {
+			LOGGER.log(Level.WARNING, "Unable to read the Veracode build created for " + submission, e);
+		}
+	}
+
+	/**
+	 * Records the Veracode build a file was uploaded to, which Veracode creates with the first upload unless the build
+	 * was created by name.
+	 */
+	public void fileUploaded(ScanSubmission submission, String fileListXml) {
+		if (submission.getVeracodeBuildId() != null) {
+			return;
+		}
+		try {
+			recordBuildId(submission, LeanModelReader.readFilelistBuildId(fileListXml));
+		} catch (XMLStreamException e) {
+			LOGGER.log(Level.WARNING, "Unable to read the Veracode build uploaded to for " + submission, e);
+		}
+	}
+
+	private synchronized void recordBuildId(ScanSubmission submission, long veracodeBuildId) {
+		if (veracodeBuildId != LeanBuildinfo.NONE && submission.getVeracodeBuildId() == null) {
+			submission.setVeracodeBuildId(veracodeBuildId);
+			save(submission);
+		}
+	}
+
+	public void buildDeleted(ScanSubmission submission) {
+		submission.setBuildDeleted();
+		save(submission);
+	}
+
+	public void transition(ScanSubmission submission, ScanSubmission.State state) {
+		submission.setState(state);
+		save(submission);
+	}
+
+	public void close(ScanSubmission submission) {
+		live.remove(submission.getId());
+		File file = getFile(submission).getFile();
+		if (file.exists() && !file.delete()) {
+			LOGGER.warning("Unable to delete " + file);
+		}
+	}
+
+	public List<ScanSubmission> loadInFlight() {
+		List<ScanSubmission> submissions = new ArrayList<ScanSubmission>();
+		File[] files = getDirectory().listFiles();
+		if (files == null) {
+			return submissions;
+		}
+		for (File file : files) {
+			if (!file.getName().endsWith(".xml")) {
+				continue;
+			}
+			try {
+				ScanSubmission submission = (ScanSubmission) ScannerHome.getFile("submissions/" + file.getName()).read();
+				if (submission.getSupersededBy() != null) {
+					close(submission);
+					continue;
+				}
+				live.put(submission.getId(), submission);
+				submissions.add(submission);
+			} catch (IOException e) {
+				LOGGER.log(Level.WARNING, "Unable to read Veracode submission " + file, e);
+			}
+		}
+		return submissions;
+	}
+
+	private void save(ScanSubmission submission) {
+		try {
+			getFile(submission).write(submission);
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to persist Veracode submission " + submission, e);
+		}
+	}
+
+	private XmlFile getFile(ScanSubmission submission) {
+		return ScannerHome.getFile("submissions/" + submission.getId() + ".xml");
+	}
+
+	private File getDirectory() {
+		return new File(ScannerHome.getRootDir(), "submissions");
+	}
+
+	/**
+	 * Resumes the submissions left in flight, then the queued uploads, which look up their submissions.
+	 */
+	@Initializer(after = InitMilestone.JOB_LOADED)
+	public static void resumeInFlight() {
+		List<ScanSubmission> submissions = new ArrayList<ScanSubmission>();
+		for (ScanSubmission submission : get().loadInFlight()) {
+			if (submission.getState() == ScanSubmission.State.RESOLVED) {
+				discard(submission);
+			} else {
+				submissions.add(submission);
+			}
+		}
+		OffloadQueue.resumeQueued();
+		if (submissions.isEmpty()) {
+			return;
+		}
+
+		ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory());
+		for (final ScanSubmission submission : submissions) {
+			executor.submit(new Runnable() {
+				public void run() {
+					resume(submission);
+				}
+			});
+		}
+		executor.shutdown();
+	}
+
+	/**
+	 * Deletes the Veracode build of a submission whose files were not completely uploaded, as it would keep the next
+	 * submission of the application from creating a build.
+	 */
+	private static void discard(ScanSubmission submission) {
+		Long veracodeBuildId = submission.getVeracodeBuildId();
+		try {
+			if (veracodeBuildId != null) {
+				deleteBuild(submission, veracodeBuildId);
+			}
+		} catch (Exception e) {
+			LOGGER.log(Level.WARNING, "Unable to delete Veracode build " + veracodeBuildId + " of " + submission, e);
+		} finally {
+			get().close(submission);
+		}
+	}
+
+	private static void deleteBuild(ScanSubmission submission, long veracodeBuildId) throws Exception {
+		CredentialPool.Account account = CredentialPool.get().getAccount(submission.getApiUser());
+		UploadAPIWrapper veracodeUploadClient = account.borrowClient();
+		try {
+			synchronized (get().lockFor(submission.getAppId())) {
+				// deleteBuild deletes the latest build of the application, which has to be the one of this submission
+				LeanBuildinfo latest = LeanModelReader.readBuildinfo(veracodeUploadClient.getBuildInfo(submission.getAppId()));
+				if (latest.hasBuild() && latest.getBuildId() == veracodeBuildId) {
+					veracodeUploadClient.deleteBuild(submission.getAppId());
+					LOGGER.info("Deleted Veracode build " + veracodeBuildId + " of " + submission + " as its files were not completely uploaded");
+				}
+			}
+		} finally {
+			account.returnClient(veracodeUploadClient);
+		}
+	}
+
+	private static void resume(ScanSubmission submission) {
+		LOGGER.info("Resuming Veracode submission " + submission);
+		CredentialPool.Account account;
+		try {
+			account = CredentialPool.get().getAccount(submission.getApiUser());
+		} catch (VeracodeScannerException e) {
+			LOGGER.log(Level.WARNING, "Failed to resume Veracode submission " + submission, e);
+			get().close(submission);
+			return;
+		}
+		UploadAPIWrapper veracodeUploadClient = account.borrowClient();
+		account.submissionStarted();
+		try {
+			VeracodeNotifier.DescriptorImpl descriptor = Jenkins.getInstance().getDescriptorByType(VeracodeNotifier.DescriptorImpl.class);
+			TaskListener listener = new LogTaskListener(LOGGER, Level.INFO);
+			new SubmissionRunner(veracodeUploadClient, listener, Boolean.TRUE.equals(descriptor.getVerbose())).run(submission);
+		} catch (VeracodeScannerException e) {
+			LOGGER.log(Level.WARNING, "Failed to resume Veracode submission " + submission, e);
+		} finally {
+			account.submissionFinished();
+			account.returnClient(veracodeUploadClient);
+			get().close(submission);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package org.jenkinsci.plugins.veracodescanner.telemetry;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Emits the measurements as Java Flight Recorder events, so that a recording of the controller shows them next to the
+ * socket reads they cause. JFR is only available on newer JVMs than the plugin is built for, so the event types are
+ * defined at runtime through {@code jdk.jfr.EventFactory}; on other JVMs nothing is emitted.
+ */
+final class FlightRecorder {
+
+	private static final Logger LOGGER = Logger.getLogger(FlightRecorder.class.getName());
+
+	private static final String PREFIX = "org.jenkinsci.plugins.veracodescanner.";
+
+	private volatile boolean available;
+	private Constructor<?> annotationElement;
+	private Constructor<?> valueDescriptor;
+	private Object apiCalls;
+	private Object phases;
+	private Object cacheLookups;
+	private Method newEvent;
+	private Method begin;
+	private Method end;
+	private Method set;
+	private Method commit;
+
+	private FlightRecorder() {
+	}
+
+	static FlightRecorder create() {
+		FlightRecorder recorder = new FlightRecorder();
+		try {
+			recorder.init();
+			recorder.available = true;
+		} catch (Exception e) {
+			LOGGER.log(Level.FINE, "Java Flight Recorder is not available, Veracode events are not recorded", e);
+		} catch (LinkageError e) {
+			LOGGER.log(Level.FINE, "Java Flight Recorder is not available, Veracode events are not recorded", e);
+		}
+		return recorder;
+	}
+
+	boolean isAvailable() {
+		return available;
+	}
+
+	/**
+	 * @return the started event of the given kind, or null
+	 */
+	Object begin(String kind) {
+		if (!available) {
+			return null;
+		}
+		try {
+			Object event = newEvent.invoke(Telemetry.API.equals(kind) ? apiCalls : phases);
+			begin.invoke(event);
+			return event;
+		} catch (Exception e) {
+			disable(e);
+			return null;
+		}
+	}
+
+	void commit(Object event, String kind, String name, String appId, long bytes, boolean success) {
+		if (event == null || !available) {
+			return;
+		}
+		try {
+			end.invoke(event);
+			set.invoke(event, 0, name);
+			set.invoke(event, 1, appId);
+			set.invoke(event, 2, bytes);
+			set.invoke(event, 3, success);
+			commit.invoke(event);
+		} catch (Exception e) {
+			disable(e);
+		}
+	}
+
+	void cacheLookup(String cache, boolean hit) {
+		if (!available) {
+			return;
+		}
+		try {
+			Object event = newEvent.invoke(cacheLookups);
+			set.invoke(event, 0, cache);
+			set.invoke(event, 1, hit);
+			commit.invoke(event);
+		} catch (Exception e) {
+			disable(e);
+		}
+	}
+
+	private void disable(Exception e) {
+		if (available) {
+			available = false;
+			LOGGER.log(Level.WARNING, "Unable to emit Java Flight Recorder events, no more Veracode events are recorded", e);
+		}
+	}
+
+	private void init() throws Exception {
+		Class<?> factory = Class.forName("jdk.jfr.EventFactory");
+		Class<?> event = Class.forName("jdk.jfr.Event");
+		annotationElement = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class);
+		valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+		Method create = factory.getMethod("create", List.class, List.class);
+		newEvent = factory.getMethod("newEvent");
+		begin = event.getMethod("begin");
+		end = event.getMethod("end");
+		set = event.getMethod("set", int.class, Object.class);
+		commit = event.getMethod("commit");
+
+		apiCalls = create.invoke(null, eventType("ApiCall", "Veracode API Call"), Arrays.asList(field(String.class, "endpoint", "Endpoint"),
+				field(String.class, "appId", "Application ID"), bytesField(), field(boolean.class, "success", "Success")));
+		phases = create.invoke(null, eventType("Phase", "Veracode Submission Phase"), Arrays.asList(field(String.class, "phase", "Phase"),
+				field(String.class, "appId", "Application ID"), bytesField(), field(boolean.class, "success", "Success")));
+		cacheLookups = create.invoke(null, eventType("CacheLookup", "Veracode Cache Lookup"),
+				Arrays.asList(field(String.class, "cache", "Cache"), field(boolean.class, "hit", "Hit")));
+	}
+
+	private List<Object> eventType(String name, String label) throws Exception {
+		List<Object> annotations = new ArrayList<Object>();
+		annotations.add(annotation("Name", PREFIX + name));
+		annotations.add(annotation("Label", label));
+		annotations.add(annotation("Category", new String[] { "Veracode" }));
+		annotations.add(annotation("StackTrace", Boolean.FALSE));
+		return annotations;
+	}
+
+	private Object bytesField() throws Exception {
+		return valueDescriptor.newInstance(long.class, "bytes", Arrays.asList(annotation("Label", "Bytes"), annotation("DataAmount", "BYTES")));
+	}
+
+	private Object field(Class<?> type, String name, String label) throws Exception {
+		return valueDescriptor.newInstance(type, name, Arrays.asList(annotation("Label", label)));
+	}
+
+	private Object annotation(String type, Object value) throws Exception {
+		return annotationElement.newInstance(Class.forName("jdk.jfr." + type), value);
+	}
+}
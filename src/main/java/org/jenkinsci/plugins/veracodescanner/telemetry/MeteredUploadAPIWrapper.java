@@ -0,0 +1,137 @@
+package org.jenkinsci.plugins.veracodescanner.telemetry;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.veracode.apiwrapper.wrappers.UploadAPIWrapper;
+
+/**
+ * API client recording the duration, size and outcome of every call in {@link Telemetry}.
+ */
+public class MeteredUploadAPIWrapper extends UploadAPIWrapper {
+
+	@Override
+	public String getAppList() throws IOException {
+		Telemetry.Span span = Telemetry.get().apiCall("getapplist", null);
+		boolean success = false;
+		try {
+			String response = super.getAppList();
+			success = true;
+			return received(span, response);
+		} finally {
+			span.end(success);
+		}
+	}
+
+	@Override
+	public String getBuildInfo(String appId) throws IOException {
+		Telemetry.Span span = Telemetry.get().apiCall("getbuildinfo", appId);
+		boolean success = false;
+		try {
+			String response = super.getBuildInfo(appId);
+			success = true;
+			return received(span, response);
+		} finally {
+			span.end(success);
+		}
+	}
+
+	@Override
+	public String getBuildInfo(String appId, String buildId) throws IOException {
+		Telemetry.Span span = Telemetry.get().apiCall("getbuildinfo", appId);
+		boolean success = false;
+		try {
+			String response = super.getBuildInfo(appId, buildId);
+			success = true;
+			return received(span, response);
+		} finally {
+			span.end(success);
+		}
+	}
+
+	@Override
+	public String createBuild(String appId, String version) throws IOException {
+		Telemetry.Span span = Telemetry.get().apiCall("createbuild", appId);
+		boolean success = false;
+		try {
+			String response = super.createBuild(appId, version);
+			success = true;
+			return received(span, response);
+		} finally {
+			span.end(success);
+		}
+	}
+
+	@Override
+	public String uploadFile(String appId, String path) throws IOException {
+		Telemetry.Span span = Telemetry.get().apiCall("uploadfile", appId);
+		boolean success = false;
+		try {
+			span.bytes(new File(path).length());
+			String response = super.uploadFile(appId, path);
+			success = true;
+			return received(span, response);
+		} finally {
+			span.end(success);
+		}
+	}
+
+	@Override
+	public String beginPreScan(String appId) throws IOException {
+		Telemetry.Span span = Telemetry.get().apiCall("beginprescan", appId);
+		boolean success = false;
+		try {
+			String response = super.beginPreScan(appId);
+			success = true;
+			return received(span, response);
+		} finally {
+			span.end(success);
+		}
+	}
+
+	@Override
+	public String getPreScanResults(String appId) throws IOException {
+		Telemetry.Span span = Telemetry.get().apiCall("getprescanresults", appId);
+		boolean success = false;
+		try {
+			String response = super.getPreScanResults(appId);
+			success = true;
+			return received(span, response);
+		} finally {
+			span.end(success);
+		}
+	}
+
+	@Override
+	public String beginScan(String appId, String modules, String scanAll) throws IOException {
+		Telemetry.Span span = Telemetry.get().apiCall("beginscan", appId);
+		boolean success = false;
+		try {
+			String response = super.beginScan(appId, modules, scanAll);
+			success = true;
+			return received(span, response);
+		} finally {
+			span.end(success);
+		}
+	}
+
+	@Override
+	public String deleteBuild(String appId) throws IOException {
+		Telemetry.Span span = Telemetry.get().apiCall("deletebuild", appId);
+		boolean success = false;
+		try {
+			String response = super.deleteBuild(appId);
+			success = true;
+			return received(span, response);
+		} finally {
+			span.end(success);
+		}
+	}
+
+	private static String received(Telemetry.Span span, String response) {
+		if (response != null) {
+			span.bytes(response.length());
+		}
+		return response;
+	}
+}
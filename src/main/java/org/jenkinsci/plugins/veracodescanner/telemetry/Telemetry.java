@@ -0,0 +1,215 @@
+package org.jenkinsci.plugins.veracodescanner.telemetry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Timings of the Veracode API calls and submission phases, and hit counts of the plugin's caches. Every measurement is
+ * added to the totals of this JVM, logged at FINE, and emitted as a Java Flight Recorder event when the JVM has JFR.
+ */
+public class Telemetry {
+
+	private static final Logger LOGGER = Logger.getLogger(Telemetry.class.getName());
+
+	public static final String API = "api";
+	public static final String PHASE = "phase";
+
+	private static final Telemetry INSTANCE = new Telemetry();
+
+	private final ConcurrentMap<String, Timing> timings = new ConcurrentHashMap<String, Timing>();
+	private final ConcurrentMap<String, CacheCount> caches = new ConcurrentHashMap<String, CacheCount>();
+	private final FlightRecorder recorder = FlightRecorder.create();
+
+	public static Telemetry get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @param endpoint
+	 *            name of the API call, e.g. getbuildinfo
+	 * @param appId
+	 *            application the call is about, or null
+	 */
+	public Span apiCall(String endpoint, String appId) {
+		return new Span(API, endpoint, appId, recorder.begin(API));
+	}
+
+	public Span phase(String phase, String appId) {
+		return new Span(PHASE, phase, appId, recorder.begin(PHASE));
+	}
+
+	public void cacheLookup(String cache, boolean hit) {
+		CacheCount count = caches.get(cache);
+		if (count == null) {
+			caches.putIfAbsent(cache, new CacheCount(cache));
+			count = caches.get(cache);
+		}
+		(hit ? count.hits : count.misses).incrementAndGet();
+		recorder.cacheLookup(cache, hit);
+	}
+
+	/**
+	 * @return totals of the API calls and phases measured so far, API calls first
+	 */
+	public List<Timing> getTimings() {
+		List<Timing> list = new ArrayList<Timing>(timings.values());
+		Collections.sort(list, new Comparator<Timing>() {
+			public int compare(Timing a, Timing b) {
+				int kind = a.kind.compareTo(b.kind);
+				return kind != 0 ? kind : a.name.compareTo(b.name);
+			}
+		});
+		return list;
+	}
+
+	public List<CacheCount> getCacheCounts() {
+		List<CacheCount> list = new ArrayList<CacheCount>(caches.values());
+		Collections.sort(list, new Comparator<CacheCount>() {
+			public int compare(CacheCount a, CacheCount b) {
+				return a.name.compareTo(b.name);
+			}
+		});
+		return list;
+	}
+
+	public boolean isFlightRecorderAvailable() {
+		return recorder.isAvailable();
+	}
+
+	private void record(Span span, long nanos, boolean success) {
+		String key = span.kind + ':' + span.name;
+		Timing timing = timings.get(key);
+		if (timing == null) {
+			timings.putIfAbsent(key, new Timing(span.kind, span.name));
+			timing = timings.get(key);
+		}
+		timing.add(nanos, span.bytes, success);
+		if (LOGGER.isLoggable(Level.FINE)) {
+			LOGGER.fine("Veracode " + span.kind + " " + span.name + (span.appId != null ? " of app " + span.appId : "") + ": "
+					+ TimeUnit.NANOSECONDS.toMillis(nanos) + " ms" + (span.bytes > 0 ? ", " + span.bytes + " bytes" : "")
+					+ (success ? "" : ", failed"));
+		}
+		recorder.commit(span.event, span.kind, span.name, span.appId, span.bytes, success);
+	}
+
+	/**
+	 * A running measurement, which has to be {@link #end(boolean) ended} exactly once, usually in a finally block.
+	 */
+	public class Span {
+
+		private final String kind;
+		private final String name;
+		private final String appId;
+		private final Object event;
+		private final long start = System.nanoTime();
+		private long bytes;
+
+		private Span(String kind, String name, String appId, Object event) {
+			this.kind = kind;
+			this.name = name;
+			this.appId = appId;
+			this.event = event;
+		}
+
+		/**
+		 * Adds to the number of bytes sent or received.
+		 */
+		public Span bytes(long bytes) {
+			this.bytes += bytes;
+			return this;
+		}
+
+		public void end(boolean success) {
+			record(this, System.nanoTime() - start, success);
+		}
+	}
+
+	public static class Timing {
+
+		private final String kind;
+		private final String name;
+		private long count;
+		private long failures;
+		private long totalNanos;
+		private long maxNanos;
+		private long bytes;
+
+		private Timing(String kind, String name) {
+			this.kind = kind;
+			this.name = name;
+		}
+
+		private synchronized void add(long nanos, long bytes, boolean success) {
+			count++;
+			if (!success) {
+				failures++;
+			}
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+			this.bytes += bytes;
+		}
+
+		public String getKind() {
+			return kind;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public synchronized long getCount() {
+			return count;
+		}
+
+		public synchronized long getFailures() {
+			return failures;
+		}
+
+		public synchronized long getTotalMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+		}
+
+		public synchronized long getAverageMillis() {
+			return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos / count);
+		}
+
+		public synchronized long getMaxMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(maxNanos);
+		}
+
+		public synchronized long getBytes() {
+			return bytes;
+		}
+	}
+
+	public static class CacheCount {
+
+		private final String name;
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+
+		private CacheCount(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getHits() {
+			return hits.get();
+		}
+
+		public long getMisses() {
+			return misses.get();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package org.jenkinsci.plugins.veracodescanner.upload;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A time-of-day window with its own upload budget, written as <code>HH:mm-HH:mm=KB/s</code>.
+ * Windows may wrap past midnight, e.g. <code>22:00-06:00=8192</code>.
+ */
+public class BandwidthProfile {
+
+	private static final Pattern FORMAT = Pattern.compile("(\\d{1,2}):(\\d{2})\\s*-\\s*(\\d{1,2}):(\\d{2})\\s*=\\s*(\\d+)");
+
+	private final int startMinute;
+	private final int endMinute;
+	private final long bytesPerSecond;
+
+	public BandwidthProfile(int startMinute, int endMinute, long bytesPerSecond) {
+		this.startMinute = startMinute;
+		this.endMinute = endMinute;
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	public long getBytesPerSecond() {
+		return bytesPerSecond;
+	}
+
+	public boolean isActive(Calendar time) {
+		int minute = time.get(Calendar.HOUR_OF_DAY) * 60 + time.get(Calendar.MINUTE);
+		if (startMinute <= endMinute) {
+			return minute >= startMinute && minute < endMinute;
+		}
+		return minute >= startMinute || minute < endMinute;
+	}
+
+	public static List<BandwidthProfile> parse(String profiles) {
+		List<BandwidthProfile> result = new ArrayList<BandwidthProfile>();
+		if (profiles == null) {
+			return result;
+		}
+		for (String line : profiles.split("[\\r\\n]+")) {
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#")) {
+				continue;
+			}
+			Matcher m = FORMAT.matcher(line);
+			if (!m.matches()) {
+				throw new IllegalArgumentException("Invalid bandwidth profile '" + line + "'. Expected HH:mm-HH:mm=KB/s");
+			}
+			int start = toMinute(m.group(1), m.group(2), line);
+			int end = toMinute(m.group(3), m.group(4), line);
+			result.add(new BandwidthProfile(start, end, Long.parseLong(m.group(5)) * 1024l));
+		}
+		return result;
+	}
+
+	private static int toMinute(String hours, String minutes, String line) {
+		int h = Integer.parseInt(hours);
+		int m = Integer.parseInt(minutes);
+		if (h > 24 || m > 59 || (h == 24 && m > 0)) {
+			throw new IllegalArgumentException("Invalid time of day in bandwidth profile '" + line + "'");
+		}
+		return h * 60 + m;
+	}
+}
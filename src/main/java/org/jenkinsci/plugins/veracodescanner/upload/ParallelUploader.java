@@ -0,0 +1,86 @@
+package org.jenkinsci.plugins.veracodescanner.upload;
+
+import hudson.util.DaemonThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jenkinsci.plugins.veracodescanner.credentials.CredentialPool;
+import org.jenkinsci.plugins.veracodescanner.submission.ScanSubmission;
+import org.jenkinsci.plugins.veracodescanner.submission.SubmissionStore;
+
+import com.veracode.apiwrapper.wrappers.UploadAPIWrapper;
+
+/**
+ * Uploads the files of one submission concurrently, each thread with its own API client of the submission's account,
+ * all paced by the build's {@link UploadGovernor.Lease}.
+ */
+public class ParallelUploader {
+
+	private static final int THREADS = Integer.getInteger(ParallelUploader.class.getName() + ".threads", 4);
+
+	private final CredentialPool.Account account;
+
+	public ParallelUploader(CredentialPool.Account account) {
+		this.account = account;
+	}
+
+	public void upload(final String appId, List<File> files, final ScanSubmission submission, final UploadGovernor.Lease lease, final PrintStream logger)
+			throws IOException, InterruptedException {
+		int threads = Math.max(1, Math.min(THREADS, files.size()));
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+		try {
+			List<Future<Void>> uploads = new ArrayList<Future<Void>>();
+			for (final File file : files) {
+				uploads.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						upload(appId, file, submission, lease, logger);
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> upload : uploads) {
+				upload.get();
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Upload to Veracode failed: " + e.getCause(), e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Uploads a single file on the calling thread, unless the submission was superseded.
+	 */
+	public void upload(String appId, File file, ScanSubmission submission, UploadGovernor.Lease lease, PrintStream logger) throws IOException,
+			InterruptedException {
+		if (submission.getSupersededBy() != null) {
+			return;
+		}
+		account.acquireUpload();
+		UploadAPIWrapper veracodeUploadClient = account.borrowClient();
+		try {
+			lease.throttle();
+			long start = System.currentTimeMillis();
+			String fileListXml = veracodeUploadClient.uploadFile(appId, file.getAbsolutePath());
+			// without a scan name, the first upload creates the Veracode build
+			SubmissionStore.get().fileUploaded(submission, fileListXml);
+			lease.transferred(file.length(), start);
+			logger.println("Uploaded " + file.getName() + ": " + lease.getLastTransfer());
+		} finally {
+			account.returnClient(veracodeUploadClient);
+			account.releaseUpload();
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package org.jenkinsci.plugins.veracodescanner.upload;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Controller-wide upload bandwidth budget. Every build uploading to Veracode opens a {@link Lease} and gets an equal
+ * share of the budget that is in effect at the time. The Veracode client only uploads whole files, so pacing is done
+ * between files: after a file is sent the lease holds back the next one until the file would have been sent at the
+ * build's share. The budget thus limits the average rate, a single file is sent at full speed.
+ */
+public class UploadGovernor {
+
+	private static final UploadGovernor INSTANCE = new UploadGovernor();
+
+	private final Set<Lease> active = new HashSet<Lease>();
+	private volatile long defaultBytesPerSecond;
+	private volatile List<BandwidthProfile> profiles = Collections.emptyList();
+
+	public static UploadGovernor get() {
+		return INSTANCE;
+	}
+
+	public void configure(long bytesPerSecond, List<BandwidthProfile> profiles) {
+		this.defaultBytesPerSecond = bytesPerSecond;
+		this.profiles = profiles;
+	}
+
+	/**
+	 * @return the budget in effect right now in bytes per second, 0 when uploads are not limited
+	 */
+	public long getBudget() {
+		Calendar now = Calendar.getInstance();
+		for (BandwidthProfile profile : profiles) {
+			if (profile.isActive(now)) {
+				return profile.getBytesPerSecond();
+			}
+		}
+		return defaultBytesPerSecond;
+	}
+
+	public synchronized Lease open(String owner) {
+		Lease lease = new Lease(owner);
+		active.add(lease);
+		return lease;
+	}
+
+	private synchronized void close(Lease lease) {
+		active.remove(lease);
+	}
+
+	private synchronized long getShare() {
+		long budget = getBudget();
+		if (budget <= 0 || active.isEmpty()) {
+			return budget;
+		}
+		return Math.max(1, budget / active.size());
+	}
+
+	public class Lease {
+
+		private final String owner;
+		private long notBefore;
+		private long totalBytes;
+		private long totalMillis;
+		private long lastBytes;
+		private long lastMillis;
+
+		private Lease(String owner) {
+			this.owner = owner;
+		}
+
+		public String getOwner() {
+			return owner;
+		}
+
+		/**
+		 * Blocks until this build may start its next upload.
+		 */
+		public void throttle() throws InterruptedException {
+			long delay;
+			synchronized (this) {
+				delay = notBefore - System.currentTimeMillis();
+			}
+			if (delay > 0) {
+				Thread.sleep(delay);
+			}
+		}
+
+		public void transferred(long bytes, long startedAt) {
+			long share = getShare();
+			synchronized (this) {
+				long now = System.currentTimeMillis();
+				lastBytes = bytes;
+				lastMillis = Math.max(1, now - startedAt);
+				totalBytes += bytes;
+				totalMillis += lastMillis;
+
+				// with parallel uploads the build's share is consumed by all of them
+				notBefore = share > 0 ? Math.max(notBefore, startedAt) + bytes * 1000l / share : now;
+			}
+		}
+
+		public synchronized String getLastTransfer() {
+			StringBuilder sb = new StringBuilder();
+			sb.append(lastBytes / 1024).append(" KB in ").append(lastMillis / 1000.0).append(" s (")
+					.append(rate(lastBytes, lastMillis)).append(" KB/s");
+			long share = getShare();
+			if (share > 0) {
+				sb.append(", share ").append(share / 1024).append(" KB/s");
+			}
+			return sb.append(')').toString();
+		}
+
+		public synchronized String getTotalTransfer() {
+			return totalBytes / 1024 + " KB in " + totalMillis / 1000.0 + " s (" + rate(totalBytes, totalMillis) + " KB/s)";
+		}
+
+		public void close() {
+			UploadGovernor.this.close(this);
+		}
+
+		private long rate(long bytes, long millis) {
+			return millis > 0 ? bytes * 1000l / millis / 1024 : 0;
+		}
+	}
+}
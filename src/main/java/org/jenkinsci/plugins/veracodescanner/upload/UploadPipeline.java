@@ -0,0 +1,445 @@
+package org.jenkinsci.plugins.veracodescanner.upload;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import hudson.util.DaemonThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jenkinsci.plugins.veracodescanner.credentials.CredentialPool;
+import org.jenkinsci.plugins.veracodescanner.fingerprint.Fingerprinter;
+import org.jenkinsci.plugins.veracodescanner.staging.StagedFile;
+import org.jenkinsci.plugins.veracodescanner.staging.StagingArea;
+import org.jenkinsci.plugins.veracodescanner.submission.ScanSubmission;
+import org.jenkinsci.plugins.veracodescanner.telemetry.Telemetry;
+
+/**
+ * Submits the artifacts of one application through concurrent stages connected by bounded queues: discover, hash,
+ * package (stage copies of remote artifacts on the controller) and upload. The first artifact is uploaded while later
+ * ones are still hashed and copied. Artifacts are only hashed if their digest is needed. Uploads can be held back until
+ * every artifact is packaged, for checks that need all of them; the packaged artifacts are then fed to the upload
+ * stage once released.
+ */
+public class UploadPipeline {
+
+	private static final int HASH_THREADS = Integer.getInteger(UploadPipeline.class.getName() + ".hashThreads", 2);
+	private static final int PACKAGE_THREADS = Integer.getInteger(UploadPipeline.class.getName() + ".packageThreads", 2);
+	private static final int UPLOAD_THREADS = Integer.getInteger(UploadPipeline.class.getName() + ".uploadThreads", 4);
+	private static final int QUEUE_SIZE = Integer.getInteger(UploadPipeline.class.getName() + ".queueSize", 16);
+	private static final long REPORT_INTERVAL = 10000;
+
+	private static final Artifact END = new Artifact(null, null);
+
+	private final String appId;
+	private final ScanSubmission submission;
+	private final UploadGovernor.Lease lease;
+	private final boolean needDigests;
+	private final boolean stageRemote;
+	private final boolean verbose;
+	private final PrintStream logger;
+	private final ParallelUploader uploader;
+
+	private final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory());
+	private final List<Stage> stages = new ArrayList<Stage>();
+	private final List<Artifact> packaged = Collections.synchronizedList(new ArrayList<Artifact>());
+	private final List<Artifact> uploaded = Collections.synchronizedList(new ArrayList<Artifact>());
+	private final CountDownLatch packagedAll = new CountDownLatch(1);
+	private final CountDownLatch uploadedAll = new CountDownLatch(1);
+	private final AtomicBoolean warnedRemote = new AtomicBoolean();
+	private final AtomicBoolean released = new AtomicBoolean();
+	private Stage upload;
+	private volatile Throwable failure;
+	private boolean closed;
+
+	/**
+	 * @param needDigests
+	 *            whether the digests of all artifacts are needed, otherwise only remote artifacts that are staged are
+	 *            hashed
+	 * @param stageRemote
+	 *            whether artifacts on agents are copied to the controller, otherwise they are uploaded by their path
+	 */
+	public UploadPipeline(CredentialPool.Account account, String appId, ScanSubmission submission, UploadGovernor.Lease lease,
+			boolean needDigests, boolean stageRemote, boolean verbose, PrintStream logger) {
+		this.appId = appId;
+		this.submission = submission;
+		this.lease = lease;
+		this.needDigests = needDigests;
+		this.stageRemote = stageRemote;
+		this.verbose = verbose;
+		this.logger = logger;
+		this.uploader = new ParallelUploader(account);
+	}
+
+	/**
+	 * Starts with the artifacts of the workspace matching the includes.
+	 *
+	 * @param holdUploads
+	 *            whether uploads wait for {@link #releaseUploads()}
+	 */
+	public void start(final FilePath workspace, final String includes, boolean holdUploads) {
+		start(new Discovery() {
+			void discover() throws Exception {
+				for (FilePath file : workspace.list(includes)) {
+					emit(new Artifact(file, null));
+				}
+			}
+		}, holdUploads);
+	}
+
+	/**
+	 * Starts with artifacts whose digests are known already.
+	 *
+	 * @param artifacts
+	 *            the artifacts keyed by their digest
+	 */
+	public void start(final Map<String, FilePath> artifacts, boolean holdUploads) {
+		start(new Discovery() {
+			void discover() throws Exception {
+				for (Map.Entry<String, FilePath> artifact : artifacts.entrySet()) {
+					emit(new Artifact(artifact.getValue(), artifact.getKey()));
+				}
+			}
+		}, holdUploads);
+	}
+
+	private void start(Discovery discovery, boolean holdUploads) {
+		if (!holdUploads) {
+			released.set(true);
+		}
+		upload = new Stage("upload", UPLOAD_THREADS, new ArrayBlockingQueue<Artifact>(QUEUE_SIZE), null) {
+			void process(Artifact artifact) throws Exception {
+				uploader.upload(appId, artifact.file, submission, lease, logger);
+				uploaded.add(artifact);
+			}
+
+			void finished() {
+				uploadedAll.countDown();
+			}
+		};
+		// held artifacts wait in the packaged list, the upload threads wait for releaseUploads() to feed them
+		Stage packaging = new Stage("package", PACKAGE_THREADS, new ArrayBlockingQueue<Artifact>(QUEUE_SIZE), holdUploads ? null : upload) {
+			void process(Artifact artifact) throws Exception {
+				artifact.file = toLocalFile(artifact);
+				synchronized (packaged) {
+					if (closed && artifact.staged != null) {
+						StagingArea.get().release(artifact.staged);
+						artifact.staged = null;
+					}
+					packaged.add(artifact);
+				}
+			}
+
+			void finished() {
+				packagedAll.countDown();
+			}
+		};
+		Stage hash = new Stage("hash", HASH_THREADS, new ArrayBlockingQueue<Artifact>(QUEUE_SIZE), packaging) {
+			void process(Artifact artifact) throws Exception {
+				if (artifact.digest == null && (needDigests || (stageRemote && artifact.source.isRemote()))) {
+					artifact.digest = Fingerprinter.fingerprint(artifact.source, null).getDigest(artifact.source.getRemote());
+				}
+			}
+		};
+		discovery.next = hash;
+		stages.add(discovery);
+		stages.add(hash);
+		stages.add(packaging);
+		stages.add(upload);
+		// consumers first, so that a failing discovery cannot stop the executor before every stage is running
+		for (int i = stages.size() - 1; i >= 0; i--) {
+			stages.get(i).start();
+		}
+	}
+
+	private File toLocalFile(Artifact artifact) throws IOException, InterruptedException {
+		FilePath source = artifact.source;
+		if (!source.isRemote()) {
+			return new File(source.getRemote());
+		}
+		if (stageRemote) {
+			artifact.staged = StagingArea.get().stage(source, artifact.digest);
+			return StagingArea.get().getFile(artifact.staged);
+		}
+		if (warnedRemote.compareAndSet(false, true)) {
+			logger.println("[WARNING] Remote workspace detected. Please consider enabling Master/slave mode in the plugin settings");
+		}
+		return source.act(new FileGetter());
+	}
+
+	/**
+	 * @return all artifacts once they are hashed and available on the controller
+	 */
+	public List<Artifact> awaitPackaged() throws IOException, InterruptedException {
+		packagedAll.await();
+		checkFailure();
+		return new ArrayList<Artifact>(packaged);
+	}
+
+	/**
+	 * Uploads the held artifacts, at most a queue full ahead of the upload threads. Has to be called after
+	 * {@link #awaitPackaged()}.
+	 */
+	public void releaseUploads() {
+		if (released.getAndSet(true)) {
+			return;
+		}
+		final List<Artifact> held = new ArrayList<Artifact>(packaged);
+		executor.submit(new Runnable() {
+			public void run() {
+				try {
+					for (Artifact artifact : held) {
+						upload.queue.put(artifact);
+					}
+					upload.queue.put(END);
+				} catch (Throwable t) {
+					fail(t);
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return the uploaded artifacts once all are uploaded
+	 */
+	public List<Artifact> awaitUploaded() throws IOException, InterruptedException {
+		while (!uploadedAll.await(REPORT_INTERVAL, TimeUnit.MILLISECONDS)) {
+			if (verbose) {
+				logger.println("Queued: " + getQueueDepths());
+			}
+		}
+		checkFailure();
+		return new ArrayList<Artifact>(uploaded);
+	}
+
+	/**
+	 * @return the number of artifacts waiting for each stage
+	 */
+	public Map<String, Integer> getQueueDepths() {
+		Map<String, Integer> depths = new LinkedHashMap<String, Integer>();
+		for (Stage stage : stages) {
+			if (stage.queue != null) {
+				depths.put(stage.name, Math.max(0, stage.queue.size() - (stage.ended ? 1 : 0)));
+			}
+		}
+		return depths;
+	}
+
+	/**
+	 * @return how many artifacts each stage processed and how long its threads were busy
+	 */
+	public String getSummary() {
+		StringBuilder sb = new StringBuilder();
+		for (Stage stage : stages) {
+			sb.append(sb.length() == 0 ? "" : ", ").append(stage.name).append(' ').append(stage.processed.get()).append(" in ")
+					.append(stage.busyMillis.get()).append(" ms");
+		}
+		return "Artifacts per stage: " + sb;
+	}
+
+	/**
+	 * Stops all stages and releases the staged copies. Has to be called when the pipeline is no longer needed.
+	 */
+	public void close() {
+		executor.shutdownNow();
+		synchronized (packaged) {
+			closed = true;
+			for (Artifact artifact : packaged) {
+				if (artifact.staged != null) {
+					StagingArea.get().release(artifact.staged);
+					artifact.staged = null;
+				}
+			}
+		}
+	}
+
+	private void checkFailure() throws IOException, InterruptedException {
+		Throwable t = failure;
+		if (t instanceof IOException) {
+			throw (IOException) t;
+		} else if (t instanceof InterruptedException) {
+			throw (InterruptedException) t;
+		} else if (t != null) {
+			throw new IOException("Submitting the artifacts failed: " + t, t);
+		}
+	}
+
+	private void fail(Throwable t) {
+		if (failure == null) {
+			failure = t;
+		}
+		executor.shutdownNow();
+		packagedAll.countDown();
+		uploadedAll.countDown();
+	}
+
+	/**
+	 * Threads taking artifacts from the stage's queue and handing them to the next stage. The end of the input is
+	 * marked by the {@link UploadPipeline#END} artifact.
+	 */
+	private abstract class Stage implements Runnable {
+
+		final String name;
+		final int threads;
+		final BlockingQueue<Artifact> queue;
+		Stage next;
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger processed = new AtomicInteger();
+		final AtomicLong busyMillis = new AtomicLong();
+		volatile boolean ended;
+
+		private Stage(String name, int threads, BlockingQueue<Artifact> queue, Stage next) {
+			this.name = name;
+			this.threads = Math.max(1, threads);
+			this.queue = queue;
+			this.next = next;
+		}
+
+		void start() {
+			running.set(threads);
+			for (int i = 0; i < threads; i++) {
+				executor.submit(this);
+			}
+		}
+
+		public void run() {
+			try {
+				while (true) {
+					Artifact artifact = queue.take();
+					if (artifact == END) {
+						// leave the end marker for the other threads of this stage
+						ended = true;
+						queue.put(END);
+						break;
+					}
+					long start = System.currentTimeMillis();
+					Telemetry.Span span = Telemetry.get().phase("pipeline " + name, appId);
+					boolean success = false;
+					try {
+						process(artifact);
+						success = true;
+					} finally {
+						span.end(success);
+					}
+					busyMillis.addAndGet(System.currentTimeMillis() - start);
+					processed.incrementAndGet();
+					if (next != null) {
+						next.queue.put(artifact);
+					}
+				}
+				if (running.decrementAndGet() == 0) {
+					finished();
+					if (next != null) {
+						next.queue.put(END);
+					}
+				}
+			} catch (Throwable t) {
+				fail(t);
+			}
+		}
+
+		abstract void process(Artifact artifact) throws Exception;
+
+		void finished() {
+		}
+	}
+
+	/**
+	 * Single threaded first stage, feeding the artifacts it finds to the next stage.
+	 */
+	private abstract class Discovery extends Stage {
+
+		private Discovery() {
+			super("discover", 1, null, null);
+		}
+
+		@Override
+		public void run() {
+			try {
+				long start = System.currentTimeMillis();
+				Telemetry.Span span = Telemetry.get().phase("pipeline " + name, appId);
+				boolean success = false;
+				try {
+					discover();
+					success = true;
+				} finally {
+					span.end(success);
+				}
+				busyMillis.addAndGet(System.currentTimeMillis() - start);
+				next.queue.put(END);
+			} catch (Throwable t) {
+				fail(t);
+			}
+		}
+
+		abstract void discover() throws Exception;
+
+		void emit(Artifact artifact) throws InterruptedException {
+			next.queue.put(artifact);
+			processed.incrementAndGet();
+		}
+
+		@Override
+		void process(Artifact artifact) {
+		}
+	}
+
+	/**
+	 * An artifact moving through the pipeline.
+	 */
+	public static class Artifact {
+
+		private final FilePath source;
+		private volatile String digest;
+		private volatile File file;
+		private volatile StagedFile staged;
+
+		private Artifact(FilePath source, String digest) {
+			this.source = source;
+			this.digest = digest;
+		}
+
+		public String getName() {
+			return source.getName();
+		}
+
+		public FilePath getSource() {
+			return source;
+		}
+
+		public String getDigest() {
+			return digest;
+		}
+
+		/**
+		 * @return the file on the controller that is uploaded
+		 */
+		public File getFile() {
+			return file;
+		}
+	}
+
+	private static class FileGetter implements FilePath.FileCallable<File> {
+
+		private static final long serialVersionUID = 1L;
+
+		public File invoke(File f, VirtualChannel channel) {
+			return f;
+		}
+	}
+}
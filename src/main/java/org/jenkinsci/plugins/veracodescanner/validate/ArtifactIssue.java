@@ -0,0 +1,37 @@
+package org.jenkinsci.plugins.veracodescanner.validate;
+
+/**
+ * A problem found in an artifact before it is uploaded, named like the file issues reported by the prescan.
+ */
+public class ArtifactIssue {
+
+	private final String filename;
+	private final String details;
+	private final boolean fatal;
+
+	public ArtifactIssue(String filename, String details, boolean fatal) {
+		this.filename = filename;
+		this.details = details;
+		this.fatal = fatal;
+	}
+
+	public String getFilename() {
+		return filename;
+	}
+
+	public String getDetails() {
+		return details;
+	}
+
+	/**
+	 * @return whether the prescan will most likely report a fatal error for the module
+	 */
+	public boolean isFatal() {
+		return fatal;
+	}
+
+	@Override
+	public String toString() {
+		return (fatal ? "[FATAL] " : "[WARNING] ") + filename + ": " + details;
+	}
+}
@@ -0,0 +1,188 @@
+package org.jenkinsci.plugins.veracodescanner.validate;
+
+import hudson.util.DaemonThreadFactory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Inspects artifacts before they are uploaded to predict the fatal errors the prescan would report, so that a build
+ * doesn't spend a whole upload and prescan cycle to find out. Artifacts are inspected in parallel.
+ */
+public class ArtifactValidator {
+
+	private static final int MAX_NESTING = Integer.getInteger(ArtifactValidator.class.getName() + ".maxNesting", 3);
+
+	private static final List<String> ARCHIVES = Arrays.asList(".jar", ".war", ".ear", ".zip", ".apk", ".aar");
+	private static final List<String> UNSUPPORTED = Arrays.asList(".rar", ".7z", ".tar", ".gz", ".tgz", ".bz2", ".xz");
+
+	public List<ArtifactIssue> validate(List<File> files) throws InterruptedException {
+		List<ArtifactIssue> issues = new ArrayList<ArtifactIssue>();
+		if (files.isEmpty()) {
+			return issues;
+		}
+
+		int threads = Math.min(files.size(), Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+		try {
+			List<Future<List<ArtifactIssue>>> results = new ArrayList<Future<List<ArtifactIssue>>>();
+			for (final File file : files) {
+				results.add(executor.submit(new Callable<List<ArtifactIssue>>() {
+					public List<ArtifactIssue> call() throws Exception {
+						return validate(file);
+					}
+				}));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				try {
+					issues.addAll(results.get(i).get());
+				} catch (ExecutionException e) {
+					issues.add(new ArtifactIssue(files.get(i).getName(), "Could not be inspected: " + e.getCause(), false));
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return issues;
+	}
+
+	List<ArtifactIssue> validate(File file) throws IOException {
+		List<ArtifactIssue> issues = new ArrayList<ArtifactIssue>();
+		String name = file.getName();
+		if (!file.isFile()) {
+			// not on this node, e.g. a remote workspace without Master/slave mode
+			return issues;
+		}
+		if (hasExtension(name, UNSUPPORTED)) {
+			issues.add(new ArtifactIssue(name, "Unsupported archive format, repackage it as a zip archive", true));
+			return issues;
+		}
+
+		Inspection inspection = new Inspection(name);
+		if (hasExtension(name, ARCHIVES)) {
+			InputStream in = new BufferedInputStream(new FileInputStream(file));
+			try {
+				inspection.inspectArchive(new ZipInputStream(in), name, 1);
+			} catch (IOException e) {
+				issues.add(new ArtifactIssue(name, "Not a readable archive: " + e.getMessage(), true));
+				return issues;
+			} finally {
+				in.close();
+			}
+		} else if (name.endsWith(".class")) {
+			InputStream in = new BufferedInputStream(new FileInputStream(file));
+			try {
+				inspection.inspectClass(in, name);
+			} finally {
+				in.close();
+			}
+		}
+		inspection.report(issues);
+		return issues;
+	}
+
+	private static boolean hasExtension(String name, List<String> extensions) {
+		String lowerCase = name.toLowerCase(Locale.ENGLISH);
+		for (String extension : extensions) {
+			if (lowerCase.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Findings of one artifact, including the archives nested in it.
+	 */
+	private static class Inspection {
+
+		private final String filename;
+		private int classes;
+		private int classesWithoutLineNumbers;
+		private String exampleWithoutLineNumbers;
+		private final List<String> tooDeep = new ArrayList<String>();
+		private final List<String> unsupported = new ArrayList<String>();
+		private final List<String> unreadable = new ArrayList<String>();
+
+		Inspection(String filename) {
+			this.filename = filename;
+		}
+
+		void inspectArchive(ZipInputStream zip, String path, int depth) throws IOException {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				if (entry.isDirectory()) {
+					continue;
+				}
+				String entryPath = path + "!/" + entry.getName();
+				if (entry.getName().endsWith(".class")) {
+					try {
+						inspectClass(zip, entryPath);
+					} catch (IOException e) {
+						unreadable.add(entryPath);
+					}
+				} else if (hasExtension(entry.getName(), ARCHIVES)) {
+					if (depth >= MAX_NESTING) {
+						tooDeep.add(entryPath);
+					} else {
+						try {
+							// the nested stream must not be closed as that would close the enclosing archive
+							inspectArchive(new ZipInputStream(zip), entryPath, depth + 1);
+						} catch (IOException e) {
+							unreadable.add(entryPath);
+						}
+					}
+				} else if (hasExtension(entry.getName(), UNSUPPORTED)) {
+					unsupported.add(entryPath);
+				}
+			}
+		}
+
+		void inspectClass(InputStream in, String path) throws IOException {
+			Boolean lineNumbers = ClassDebugInfo.hasLineNumbers(in);
+			if (lineNumbers == null) {
+				return;
+			}
+			classes++;
+			if (!lineNumbers.booleanValue()) {
+				classesWithoutLineNumbers++;
+				if (exampleWithoutLineNumbers == null) {
+					exampleWithoutLineNumbers = path;
+				}
+			}
+		}
+
+		void report(List<ArtifactIssue> issues) {
+			if (classes > 0 && classesWithoutLineNumbers == classes) {
+				issues.add(new ArtifactIssue(filename, "No debug information in any of " + classes + " classes, compile with -g", true));
+			} else if (classesWithoutLineNumbers > 0) {
+				issues.add(new ArtifactIssue(filename, classesWithoutLineNumbers + " of " + classes + " classes have no debug information, e.g. "
+						+ exampleWithoutLineNumbers, false));
+			}
+			if (!tooDeep.isEmpty()) {
+				issues.add(new ArtifactIssue(filename, tooDeep.size() + " archive(s) nested deeper than " + MAX_NESTING + " levels will not be analyzed, e.g. "
+						+ tooDeep.get(0), false));
+			}
+			if (!unsupported.isEmpty()) {
+				issues.add(new ArtifactIssue(filename, "Contains archives of an unsupported format: " + unsupported, false));
+			}
+			if (!unreadable.isEmpty()) {
+				issues.add(new ArtifactIssue(filename, unreadable.size() + " entries could not be read, e.g. " + unreadable.get(0), false));
+			}
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package org.jenkinsci.plugins.veracodescanner.validate;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads just enough of a class file to tell whether it was compiled with debug information. Veracode needs line
+ * numbers to report flaws and the prescan fails modules whose classes have none.
+ */
+class ClassDebugInfo {
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	private ClassDebugInfo() {
+	}
+
+	/**
+	 * @return {@link Boolean#TRUE} if the methods of the class carry a line number table, {@link Boolean#FALSE} if
+	 *         they don't and null if the class has no method bodies at all
+	 */
+	static Boolean hasLineNumbers(InputStream classFile) throws IOException {
+		DataInputStream in = new DataInputStream(classFile);
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a class file");
+		}
+		in.readUnsignedShort(); // minor version
+		in.readUnsignedShort(); // major version
+
+		String[] utf8 = readConstantPool(in);
+
+		in.readUnsignedShort(); // access flags
+		in.readUnsignedShort(); // this class
+		in.readUnsignedShort(); // super class
+		skipFully(in, 2 * in.readUnsignedShort()); // interfaces
+
+		int fields = in.readUnsignedShort();
+		for (int i = 0; i < fields; i++) {
+			skipFully(in, 6);
+			skipAttributes(in);
+		}
+
+		Boolean lineNumbers = null;
+		int methods = in.readUnsignedShort();
+		for (int i = 0; i < methods; i++) {
+			skipFully(in, 6);
+			int attributes = in.readUnsignedShort();
+			for (int j = 0; j < attributes; j++) {
+				String name = utf8[in.readUnsignedShort()];
+				long length = in.readInt() & 0xFFFFFFFFL;
+				if ("Code".equals(name)) {
+					boolean found = codeHasLineNumbers(in, utf8);
+					lineNumbers = lineNumbers == null ? Boolean.valueOf(found) : Boolean.valueOf(lineNumbers.booleanValue() || found);
+				} else {
+					skipFully(in, length);
+				}
+			}
+		}
+		return lineNumbers;
+	}
+
+	private static String[] readConstantPool(DataInputStream in) throws IOException {
+		int count = in.readUnsignedShort();
+		String[] utf8 = new String[count];
+		for (int i = 1; i < count; i++) {
+			int tag = in.readUnsignedByte();
+			switch (tag) {
+			case 1: // Utf8
+				utf8[i] = in.readUTF();
+				break;
+			case 3: // Integer
+			case 4: // Float
+			case 9: // Fieldref
+			case 10: // Methodref
+			case 11: // InterfaceMethodref
+			case 12: // NameAndType
+			case 17: // Dynamic
+			case 18: // InvokeDynamic
+				skipFully(in, 4);
+				break;
+			case 5: // Long
+			case 6: // Double
+				skipFully(in, 8);
+				i++;
+				break;
+			case 7: // Class
+			case 8: // String
+			case 16: // MethodType
+			case 19: // Module
+			case 20: // Package
+				skipFully(in, 2);
+				break;
+			case 15: // MethodHandle
+				skipFully(in, 3);
+				break;
+			default:
+				throw new IOException("Unknown constant pool tag " + tag);
+			}
+		}
+		return utf8;
+	}
+
+	private static boolean codeHasLineNumbers(DataInputStream in, String[] utf8) throws IOException {
+		skipFully(in, 4); // max stack and max locals
+		skipFully(in, in.readInt() & 0xFFFFFFFFL); // code
+		skipFully(in, 8 * in.readUnsignedShort()); // exception table
+
+		boolean found = false;
+		int attributes = in.readUnsignedShort();
+		for (int i = 0; i < attributes; i++) {
+			String name = utf8[in.readUnsignedShort()];
+			skipFully(in, in.readInt() & 0xFFFFFFFFL);
+			if ("LineNumberTable".equals(name)) {
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	private static void skipAttributes(DataInputStream in) throws IOException {
+		int attributes = in.readUnsignedShort();
+		for (int i = 0; i < attributes; i++) {
+			skipFully(in, 2);
+			skipFully(in, in.readInt() & 0xFFFFFFFFL);
+		}
+	}
+
+	private static void skipFully(DataInputStream in, long count) throws IOException {
+		while (count > 0) {
+			int skipped = in.skipBytes((int) Math.min(count, Integer.MAX_VALUE));
+			if (skipped <= 0) {
+				if (in.read() < 0) {
+					throw new IOException("Truncated class file");
+				}
+				skipped = 1;
+			}
+			count -= skipped;
+		}
+	}
+}
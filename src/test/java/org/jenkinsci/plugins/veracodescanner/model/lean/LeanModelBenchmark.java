@@ -0,0 +1,189 @@
+package org.jenkinsci.plugins.veracodescanner.model.lean;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.AnalysisUnitType;
+import org.jenkinsci.plugins.veracodescanner.model.buildinfo.Buildinfo;
+import org.jenkinsci.plugins.veracodescanner.model.prescan.ModuleType;
+import org.jenkinsci.plugins.veracodescanner.model.prescan.Prescanresults;
+
+/**
+ * Compares time and allocation per response of the JAXB models in the buildinfo and prescan packages with the
+ * {@link LeanModelReader}. Each parse also reads the values the plugin uses, e.g. the published date as epoch millis.
+ * Run it with the test classpath:
+ *
+ * <pre>
+ * LeanModelBenchmark [--iterations 20000] [--modules 200] [--buildinfo buildinfo.xml] [--prescanresults prescanresults.xml]
+ * </pre>
+ *
+ * Without response files, representative ones are used, the prescan results with the given number of modules. Allocation is measured per thread and only reported on JVMs
+ * that support it.
+ */
+public class LeanModelBenchmark {
+
+	/** Keeps the parse results alive, so that the JIT cannot drop the parsing. */
+	private static volatile long sink;
+
+	public static void main(String[] args) throws Exception {
+		int iterations = 20000;
+		int modules = 200;
+		String buildinfoXml = null;
+		String prescanXml = null;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (i + 1 < args.length && arg.equals("--iterations")) {
+				iterations = Integer.parseInt(args[++i]);
+			} else if (i + 1 < args.length && arg.equals("--modules")) {
+				modules = Integer.parseInt(args[++i]);
+			} else if (i + 1 < args.length && arg.equals("--buildinfo")) {
+				buildinfoXml = read(new File(args[++i]));
+			} else if (i + 1 < args.length && arg.equals("--prescanresults")) {
+				prescanXml = read(new File(args[++i]));
+			} else {
+				throw new IllegalArgumentException("Unknown argument " + arg
+						+ ", usage: LeanModelBenchmark [--iterations n] [--modules n] [--buildinfo file] [--prescanresults file]");
+			}
+		}
+		if (buildinfoXml == null) {
+			buildinfoXml = sampleBuildinfo();
+		}
+		if (prescanXml == null) {
+			prescanXml = samplePrescanResults(modules);
+		}
+
+		final String buildinfo = buildinfoXml;
+		final String prescan = prescanXml;
+		final Unmarshaller buildinfoUnmarshaller = JAXBContext.newInstance(Buildinfo.class).createUnmarshaller();
+		final Unmarshaller prescanUnmarshaller = JAXBContext.newInstance(Prescanresults.class).createUnmarshaller();
+
+		System.out.println(String.format("%-24s %12s %14s", "", "us/response", "bytes/response"));
+		measure("buildinfo JAXB", iterations, new Parse() {
+			long parse() throws Exception {
+				Buildinfo info = (Buildinfo) buildinfoUnmarshaller.unmarshal(new StringReader(buildinfo));
+				long result = info.getBuild().getBuildId();
+				if (!info.getBuild().getAnalysisUnit().isEmpty()) {
+					AnalysisUnitType analysisUnit = info.getBuild().getAnalysisUnit().get(0);
+					result += analysisUnit.getStatus().ordinal();
+					result += analysisUnit.getPublishedDate() != null ? analysisUnit.getPublishedDate().toGregorianCalendar().getTimeInMillis() : 0;
+				}
+				return result;
+			}
+		});
+		measure("buildinfo lean", iterations, new Parse() {
+			long parse() throws Exception {
+				LeanBuildinfo info = LeanModelReader.readBuildinfo(buildinfo);
+				return info.getBuildId() + (info.getStatus() != null ? info.getStatus().ordinal() : 0) + info.getPublishedDate();
+			}
+		});
+		measure("prescanresults JAXB", iterations, new Parse() {
+			long parse() throws Exception {
+				Prescanresults results = (Prescanresults) prescanUnmarshaller.unmarshal(new StringReader(prescan));
+				long result = 0;
+				for (ModuleType module : results.getModule()) {
+					result += module.getId() + module.getStatus().length() + (Boolean.TRUE.equals(module.isHasFatalErrors()) ? 1 : 0);
+				}
+				return result;
+			}
+		});
+		measure("prescanresults lean", iterations, new Parse() {
+			long parse() throws Exception {
+				LeanPrescanResults results = LeanModelReader.readPrescanResults(prescan);
+				long result = 0;
+				for (int i = 0; i < results.getModuleCount(); i++) {
+					result += results.getModuleId(i) + results.getModuleStatus(i).length() + (results.hasFatalErrors(i) ? 1 : 0);
+				}
+				return result;
+			}
+		});
+	}
+
+	private abstract static class Parse {
+		abstract long parse() throws Exception;
+	}
+
+	private static void measure(String name, int iterations, Parse parse) throws Exception {
+		long result = 0;
+		for (int i = 0; i < iterations; i++) {
+			result += parse.parse();
+		}
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			result += parse.parse();
+		}
+		long nanos = System.nanoTime() - start;
+		long allocated = allocatedBytes() - allocatedBefore;
+		sink += result;
+		System.out.println(String.format("%-24s %12.1f %14s", name, nanos / 1000.0 / iterations, allocatedBefore < 0 ? "n/a" : Long
+				.toString(allocated / iterations)));
+	}
+
+	/**
+	 * @return bytes allocated by the current thread so far, or -1 if the JVM does not tell
+	 */
+	private static long allocatedBytes() {
+		try {
+			Object threads = ManagementFactory.getThreadMXBean();
+			return (Long) Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", long.class)
+					.invoke(threads, Thread.currentThread().getId());
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	private static String read(File file) throws IOException {
+		Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+		try {
+			StringBuilder sb = new StringBuilder();
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = reader.read(buffer)) >= 0) {
+				sb.append(buffer, 0, read);
+			}
+			return sb.toString();
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static String sampleBuildinfo() {
+		return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<buildinfo xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xmlns=\"https://analysiscenter.veracode.com/schema/4.0/buildinfo\""
+				+ " buildinfo_version=\"1.4\" account_id=\"12345\" app_id=\"67890\" build_id=\"1234567\">\n"
+				+ "  <build version=\"1.0.42\" build_id=\"1234567\" submitter=\"Jenkins\" platform=\"Java\" lifecycle_stage=\"Not Specified\""
+				+ " results_ready=\"true\" policy_name=\"Veracode Recommended Medium\" policy_version=\"1\" policy_compliance_status=\"Pass\""
+				+ " policy_updated_date=\"2013-07-17T14:40:02-05:00\" rules_status=\"Pass\" grace_period_expired=\"false\" scan_overdue=\"false\">\n"
+				+ "    <analysis_unit analysis_type=\"Static\" published_date=\"2013-07-17T14:36:38-05:00\" published_date_sec=\"1374089798\""
+				+ " status=\"Results Ready\" estimated_scan_hours=\"2\" estimated_delivery_date=\"2013-07-17T15:36:38-05:00\"/>\n"
+				+ "  </build>\n" + "</buildinfo>\n";
+	}
+
+	private static String samplePrescanResults(int modules) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		sb.append("<prescanresults xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"");
+		sb.append(" xmlns=\"https://analysiscenter.veracode.com/schema/2.0/prescanresults\" account_id=\"12345\" app_id=\"67890\" build_id=\"1234567\">\n");
+		for (int i = 0; i < modules; i++) {
+			boolean fatal = i % 25 == 0;
+			sb.append("  <module id=\"").append(1000000 + i).append("\" name=\"module-").append(i).append(".jar\" platform=\"JVM / Java J2SE 6 / JAVAC_6\"");
+			sb.append(" size=\"").append(100 + i).append("KB\" status=\"").append(fatal ? "(Fatal)No supporting files or PDB files" : "OK");
+			sb.append("\" has_fatal_errors=\"").append(fatal).append("\">\n");
+			if (i % 5 == 0) {
+				sb.append("    <issue details=\"Found (Optional): commons-logging-1.1.jar\"/>\n");
+				sb.append("    <file_issue filename=\"module-").append(i).append(".jar\" details=\"Compiled without debug symbols\"/>\n");
+			}
+			sb.append("  </module>\n");
+		}
+		sb.append("</prescanresults>\n");
+		return sb.toString();
+	}
+}
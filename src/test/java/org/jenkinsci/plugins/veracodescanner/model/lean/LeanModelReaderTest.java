@@ -0,0 +1,102 @@
+package org.jenkinsci.plugins.veracodescanner.model.lean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LeanModelReaderTest {
+
+	/** 2013-07-17T19:36:38Z */
+	private static final long SUMMER = 1374089798000l;
+	/** 2013-01-17T19:36:38Z */
+	private static final long WINTER = 1358451398000l;
+
+	private TimeZone defaultZone;
+
+	@Before
+	public void setZone() {
+		defaultZone = TimeZone.getDefault();
+		TimeZone.setDefault(TimeZone.getTimeZone("America/Chicago"));
+	}
+
+	@After
+	public void restoreZone() {
+		TimeZone.setDefault(defaultZone);
+	}
+
+	@Test
+	public void parsesZoneOffsets() {
+		assertEquals(SUMMER, LeanModelReader.parseDateTime("2013-07-17T19:36:38Z"));
+		assertEquals(SUMMER, LeanModelReader.parseDateTime("2013-07-17T14:36:38-05:00"));
+		assertEquals(SUMMER, LeanModelReader.parseDateTime("2013-07-17T21:36:38+02:00"));
+		assertEquals(SUMMER, LeanModelReader.parseDateTime("2013-07-18T01:06:38+05:30"));
+		assertEquals(SUMMER, LeanModelReader.parseDateTime("2013-07-17T19:36:38+00:00"));
+		assertEquals(951782400000l, LeanModelReader.parseDateTime("2000-02-29T00:00:00Z"));
+		assertEquals(-1000l, LeanModelReader.parseDateTime("1969-12-31T23:59:59Z"));
+		assertEquals(-1l, LeanModelReader.parseDateTime("1969-12-31T23:59:59.999Z"));
+	}
+
+	@Test
+	public void takesMissingZoneAsLocalTime() {
+		assertEquals(SUMMER, LeanModelReader.parseDateTime("2013-07-17T14:36:38"));
+		assertEquals(WINTER, LeanModelReader.parseDateTime("2013-01-17T13:36:38"));
+		assertEquals(SUMMER + 250, LeanModelReader.parseDateTime("2013-07-17T14:36:38.25"));
+	}
+
+	@Test
+	public void parsesFractionalSeconds() {
+		assertEquals(SUMMER + 500, LeanModelReader.parseDateTime("2013-07-17T19:36:38.5Z"));
+		assertEquals(SUMMER + 120, LeanModelReader.parseDateTime("2013-07-17T19:36:38.12-00:00"));
+		assertEquals(SUMMER + 123, LeanModelReader.parseDateTime("2013-07-17T14:36:38.123456-05:00"));
+	}
+
+	@Test
+	public void rejectsInvalidValues() {
+		assertEquals(LeanBuildinfo.NONE, LeanModelReader.parseDateTime(null));
+		assertEquals(LeanBuildinfo.NONE, LeanModelReader.parseDateTime(""));
+		assertEquals(LeanBuildinfo.NONE, LeanModelReader.parseDateTime("2013-07-17"));
+		assertEquals(LeanBuildinfo.NONE, LeanModelReader.parseDateTime("2013-07-17 19:36:38Z"));
+		assertEquals(LeanBuildinfo.NONE, LeanModelReader.parseDateTime("2013-13-17T19:36:38Z"));
+		assertEquals(LeanBuildinfo.NONE, LeanModelReader.parseDateTime("2013-07-17T19:61:38Z"));
+		assertEquals(LeanBuildinfo.NONE, LeanModelReader.parseDateTime("20x3-07-17T19:36:38Z"));
+		assertEquals(LeanBuildinfo.NONE, LeanModelReader.parseDateTime("2013-07-17T19:36:38+0500"));
+		assertEquals(LeanBuildinfo.NONE, LeanModelReader.parseDateTime("2013-07-17T19:36:38+05:00:00"));
+		assertEquals(LeanBuildinfo.NONE, LeanModelReader.parseDateTime("2013-07-17T19:36:38+aa:00"));
+		assertEquals(LeanBuildinfo.NONE, LeanModelReader.parseDateTime("2013-07-17T19:36:38Zulu"));
+		assertEquals(LeanBuildinfo.NONE, LeanModelReader.parseDateTime("2013-07-17T19:36:38 CEST"));
+	}
+
+	@Test
+	public void leavesAbsentNumbersAbsent() throws Exception {
+		LeanBuildinfo info = LeanModelReader.readBuildinfo("<buildinfo app_id=\"67890\"><build build_id=\"1234567\" policy_version=\"x\">"
+				+ "<analysis_unit estimated_scan_hours=\"99999999999\"/></build></buildinfo>");
+		assertEquals(67890l, info.getAppId());
+		assertEquals(1234567l, info.getBuildId());
+		assertEquals(LeanBuildinfo.NONE_INT, info.getPolicyVersion());
+		assertEquals(LeanBuildinfo.NONE_INT, info.getEstimatedScanHours());
+		assertEquals(LeanBuildinfo.NONE, info.getPublishedDate());
+	}
+
+	@Test
+	public void readsPrescanModules() throws Exception {
+		LeanPrescanResults results = LeanModelReader.readPrescanResults("<prescanresults app_id=\"67890\" build_id=\"1234567\">"
+				+ "<module id=\"1\" name=\"a.jar\" platform=\"JVM\" status=\"OK\" has_fatal_errors=\"false\">"
+				+ "<issue details=\"Found (Optional): commons-logging-1.1.jar\"/><file_issue filename=\"a.jar\" details=\"No debug symbols\"/></module>"
+				+ "<module id=\"2\" name=\"b.jar\" platform=\"JVM\" status=\"(Fatal)No supporting files\" has_fatal_errors=\"true\"/>"
+				+ "</prescanresults>");
+		assertEquals(1234567l, results.getBuildId());
+		assertEquals(2, results.getModuleCount());
+		assertEquals("a.jar", results.getModuleName(0));
+		assertEquals(2, results.getIssueCount(0));
+		assertFalse(results.hasFatalErrors(0));
+		assertEquals(2l, results.getModuleId(1));
+		assertEquals(0, results.getIssueCount(1));
+		assertTrue(results.hasFatalErrors(1));
+	}
+}